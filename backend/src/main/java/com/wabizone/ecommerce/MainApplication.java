@@ -6,12 +6,14 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.wabizone.ecommerce"})
 @EntityScan("com.wabizone.ecommerce.models")
 @EnableJpaRepositories("com.wabizone.ecommerce.repository")
 @EnableMongoRepositories("com.wabizone.ecommerce.repository")
+@EnableScheduling
 public class MainApplication {
 
 	public static void main(String[] args) {
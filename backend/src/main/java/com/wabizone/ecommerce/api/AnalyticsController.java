@@ -0,0 +1,62 @@
+package com.wabizone.ecommerce.api;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wabizone.ecommerce.models.PedidoRollup;
+import com.wabizone.ecommerce.services.PedidoRollupService;
+
+@RestController
+@RequestMapping("/api/v1/analytics/pedidos")
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+
+    private static final int MAX_DIAS = 366;
+
+    private final PedidoRollupService pedidoRollupService;
+
+    public AnalyticsController(PedidoRollupService pedidoRollupService) {
+        this.pedidoRollupService = pedidoRollupService;
+    }
+
+    @GetMapping("/total")
+    public ResponseEntity<PedidoRollup> getTotal() {
+        return ResponseEntity.ok(pedidoRollupService.getTotal());
+    }
+
+    @GetMapping("/dia")
+    public ResponseEntity<List<PedidoRollup>> getPorDia(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        if (hasta.isBefore(desde) || desde.plusDays(MAX_DIAS).isBefore(hasta)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pedidoRollupService.getPorDia(desde, hasta));
+    }
+
+    @GetMapping("/estado")
+    public ResponseEntity<List<PedidoRollup>> getPorEstado() {
+        return ResponseEntity.ok(pedidoRollupService.getPorEstado());
+    }
+
+    @GetMapping("/usuario/{usuarioId}")
+    public ResponseEntity<PedidoRollup> getPorUsuario(@PathVariable Long usuarioId) {
+        return ResponseEntity.ok(pedidoRollupService.getPorUsuario(usuarioId));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        pedidoRollupService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.wabizone.ecommerce.api;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wabizone.ecommerce.services.ImageStore;
+import com.wabizone.ecommerce.services.ThumbnailService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping("/api/v1/images")
+@CrossOrigin(origins = "*")
+public class ImageController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private final ImageStore imageStore;
+    private final ThumbnailService thumbnailService;
+
+    public ImageController(ImageStore imageStore, ThumbnailService thumbnailService) {
+        this.imageStore = imageStore;
+        this.thumbnailService = thumbnailService;
+    }
+
+    @GetMapping("/{hash}")
+    public void getImage(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<Path> image = imageStore.resolve(hash);
+        if (image.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        serve(image.get(), "\"" + hash + "\"", CACHE_CONTROL, request, response);
+    }
+
+    @GetMapping("/{hash}/{size}")
+    public void getThumbnail(@PathVariable String hash, @PathVariable int size, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!ThumbnailService.isSupportedSize(size)) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        Optional<Path> thumbnail = thumbnailService.resolve(hash, size);
+        if (thumbnail.isPresent()) {
+            serve(thumbnail.get(), "\"" + hash + "-" + size + "\"", CACHE_CONTROL, request, response);
+            return;
+        }
+        Optional<Path> original = imageStore.resolve(hash);
+        if (original.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        // Not generated yet: serve the original without long-lived caching and queue the derivative
+        thumbnailService.generateAsyncForHash(hash);
+        serve(original.get(), "\"" + hash + "\"", "no-cache", request, response);
+    }
+
+    private void serve(Path path, String etag, String cacheControl, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentType(imageStore.contentType(path));
+            response.setContentLengthLong(size);
+            if ("HEAD".equals(request.getMethod())) {
+                return;
+            }
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat writes the file straight from the page cache to the socket once the handler returns
+                request.setAttribute("org.apache.tomcat.sendfile.filename", path.toString());
+                request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+                request.setAttribute("org.apache.tomcat.sendfile.end", size);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
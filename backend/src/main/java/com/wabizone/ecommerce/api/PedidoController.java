@@ -1,9 +1,16 @@
 package com.wabizone.ecommerce.api;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,12 +19,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.wabizone.ecommerce.api.request.PedidoCreationRequest;
+import com.wabizone.ecommerce.api.request.PedidoTransicionRequest;
 import com.wabizone.ecommerce.models.Pedido;
+import com.wabizone.ecommerce.models.PedidoLinea;
+import com.wabizone.ecommerce.models.ProductoVentas;
+import com.wabizone.ecommerce.api.response.PedidoIngestStatus;
+import com.wabizone.ecommerce.api.response.PedidoTransicionResult;
+import com.wabizone.ecommerce.services.EstadoTransitionException;
+import com.wabizone.ecommerce.services.IdempotencyStore;
+import com.wabizone.ecommerce.services.PedidoExportService;
+import com.wabizone.ecommerce.services.PedidoIngestService;
 import com.wabizone.ecommerce.services.PedidoService;
 
 @RestController
@@ -26,14 +44,51 @@ import com.wabizone.ecommerce.services.PedidoService;
 public class PedidoController {
 
     private final PedidoService pedidoService;
+    private final PedidoExportService pedidoExportService;
+    private final PedidoIngestService pedidoIngestService;
+    private final IdempotencyStore idempotencyStore;
 
-    public PedidoController(PedidoService pedidoService) {
+    public PedidoController(PedidoService pedidoService, PedidoExportService pedidoExportService,
+            PedidoIngestService pedidoIngestService, IdempotencyStore idempotencyStore) {
         this.pedidoService = pedidoService;
+        this.pedidoExportService = pedidoExportService;
+        this.pedidoIngestService = pedidoIngestService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping
-    public ResponseEntity<Pedido> createPedido(@RequestBody PedidoCreationRequest pedidoCreationRequest){
-        return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.createPedido(pedidoCreationRequest));
+    public ResponseEntity<Pedido> createPedido(
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @RequestBody PedidoCreationRequest pedidoCreationRequest){
+        return idempotencyStore.execute("pedidos", idempotencyKey, pedidoCreationRequest, () -> {
+            try {
+                return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.createPedido(pedidoCreationRequest));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    @PostMapping("/async")
+    public ResponseEntity<PedidoIngestStatus> createPedidoAsync(@RequestBody PedidoCreationRequest pedidoCreationRequest) {
+        if (!pedidoIngestService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        try {
+            PedidoIngestStatus status = pedidoIngestService.submit(pedidoCreationRequest);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/pedidos/async/" + status.nPedido()))
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/async/{nPedido}")
+    public ResponseEntity<PedidoIngestStatus> getPedidoAsyncStatus(@PathVariable Long nPedido) {
+        return pedidoIngestService.getStatus(nPedido)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
@@ -48,15 +103,61 @@ public class PedidoController {
         return pedido.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPedidos(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(defaultValue = "true") boolean archivados) {
+        PedidoExportService.Format exportFormat;
+        try {
+            exportFormat = PedidoExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String extension = exportFormat == PedidoExportService.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = exportFormat == PedidoExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+        if (gzip) {
+            contentType = MediaType.parseMediaType("application/gzip");
+            extension += ".gz";
+        }
+        StreamingResponseBody body = out -> pedidoExportService.export(out, exportFormat, gzip, archivados);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pedidos." + extension + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/{id}/lineas")
+    public ResponseEntity<List<PedidoLinea>> getLineas(@PathVariable Long id) {
+        return ResponseEntity.ok(pedidoService.getLineas(id));
+    }
+
+    @GetMapping("/ventas/producto/{productId}")
+    public ResponseEntity<ProductoVentas> getVentasProducto(@PathVariable Long productId) {
+        return ResponseEntity.ok(pedidoService.getVentasProducto(productId));
+    }
+
     @GetMapping
     public ResponseEntity<List<Pedido>> getAllPedidos(){
         return ResponseEntity.ok(pedidoService.getAllPedidos());
     }
     
     @GetMapping("/estado")
-    public ResponseEntity<List<Pedido>> getPedidosByEstado(@RequestParam String estado) {
-        List<Pedido> pedidos = pedidoService.getPedidosByEstado(estado);
-        return ResponseEntity.ok(pedidos);
+    public ResponseEntity<List<Pedido>> getPedidosByEstado(
+            @RequestParam String estado,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        List<Pedido> pedidos = pedidoService.getPedidosByEstado(estado, beforeId, size, usuarioId, desde, hasta);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (pedidos.size() == Math.min(Math.max(size, 1), PedidoService.MAX_PAGE_SIZE)) {
+            response.header("X-Next-Before-Id", String.valueOf(pedidos.get(pedidos.size() - 1).getId()));
+        }
+        return response.body(pedidos);
     }
     
     @PutMapping("/{id}")
@@ -64,8 +165,21 @@ public class PedidoController {
         try {
             Pedido updatedPedido = pedidoService.updatePedido(id, pedidoUpdateRequest);
             return ResponseEntity.ok(updatedPedido);
+        } catch (OptimisticLockingFailureException | EstadoTransitionException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @PostMapping("/estado/transicion")
+    public ResponseEntity<PedidoTransicionResult> transicionarPedidos(@RequestBody PedidoTransicionRequest request) {
+        try {
+            return ResponseEntity.ok(pedidoService.transicionarPedidos(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
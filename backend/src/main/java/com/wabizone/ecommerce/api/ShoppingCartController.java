@@ -1,6 +1,6 @@
 package com.wabizone.ecommerce.api;
 
-import java.util.Optional;
+import java.util.List;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,47 +8,45 @@ import org.springframework.web.bind.annotation.*;
 
 import com.wabizone.ecommerce.models.CartItem;
 import com.wabizone.ecommerce.models.ShoppingCart;
-import com.wabizone.ecommerce.repository.ShoppingCartRepository;
+import com.wabizone.ecommerce.services.IdempotencyStore;
+import com.wabizone.ecommerce.services.ShoppingCartService;
 
 @RestController
 @RequestMapping("/api/v1/cart")
 public class ShoppingCartController {
 
-    private final ShoppingCartRepository shoppingCartRepository;
+    private final ShoppingCartService shoppingCartService;
+    private final IdempotencyStore idempotencyStore;
 
-    public ShoppingCartController(ShoppingCartRepository shoppingCartRepository) {
-        this.shoppingCartRepository = shoppingCartRepository;
+    public ShoppingCartController(ShoppingCartService shoppingCartService, IdempotencyStore idempotencyStore) {
+        this.shoppingCartService = shoppingCartService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping("/session/{sessionId}")
     public ResponseEntity<ShoppingCart> getCartBySessionId(@PathVariable String sessionId) {
-        Optional<ShoppingCart> cart = shoppingCartRepository.findBySessionId(sessionId);
-        return cart.map(ResponseEntity::ok)
-                .orElseGet(() -> {
-                    ShoppingCart newCart = new ShoppingCart(sessionId, null);
-                    return ResponseEntity.ok(shoppingCartRepository.save(newCart));
-                });
+        return ResponseEntity.ok(shoppingCartService.getOrCreateBySessionId(sessionId));
     }
 
     @GetMapping("/user/{userId}")
     public ResponseEntity<ShoppingCart> getCartByUserId(@PathVariable Long userId) {
-        Optional<ShoppingCart> cart = shoppingCartRepository.findByUsuarioId(userId);
-        return cart.map(ResponseEntity::ok)
-                .orElseGet(() -> {
-                    ShoppingCart newCart = new ShoppingCart(null, userId);
-                    return ResponseEntity.ok(shoppingCartRepository.save(newCart));
-                });
+        return ResponseEntity.ok(shoppingCartService.getOrCreateByUsuarioId(userId));
     }
 
     @PostMapping("/{cartId}/items")
-    public ResponseEntity<ShoppingCart> addItemToCart(@PathVariable String cartId, @RequestBody CartItem item) {
-        Optional<ShoppingCart> optionalCart = shoppingCartRepository.findById(cartId);
-        if (optionalCart.isPresent()) {
-            ShoppingCart cart = optionalCart.get();
-            cart.addItem(item);
-            return ResponseEntity.ok(shoppingCartRepository.save(cart));
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<ShoppingCart> addItemToCart(
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @PathVariable String cartId, @RequestBody CartItem item) {
+        return idempotencyStore.execute("cart-items", idempotencyKey, List.of(cartId, item), () -> {
+            // The update pipeline stores whatever it gets; a null price would break every later total
+            if (item.getProductoId() == null || item.getCantidad() == null || item.getCantidad() <= 0
+                    || item.getPrecio() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return shoppingCartService.addItem(cartId, item)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        });
     }
 
     @PutMapping("/{cartId}/items/{productId}")
@@ -57,13 +55,9 @@ public class ShoppingCartController {
             @PathVariable Long productId,
             @RequestParam Integer cantidad) {
         
-        Optional<ShoppingCart> optionalCart = shoppingCartRepository.findById(cartId);
-        if (optionalCart.isPresent()) {
-            ShoppingCart cart = optionalCart.get();
-            cart.updateItemQuantity(productId, cantidad);
-            return ResponseEntity.ok(shoppingCartRepository.save(cart));
-        }
-        return ResponseEntity.notFound().build();
+        return shoppingCartService.updateItemQuantity(cartId, productId, cantidad)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{cartId}/items/{productId}")
@@ -71,24 +65,16 @@ public class ShoppingCartController {
             @PathVariable String cartId,
             @PathVariable Long productId) {
         
-        Optional<ShoppingCart> optionalCart = shoppingCartRepository.findById(cartId);
-        if (optionalCart.isPresent()) {
-            ShoppingCart cart = optionalCart.get();
-            cart.removeItem(productId);
-            return ResponseEntity.ok(shoppingCartRepository.save(cart));
-        }
-        return ResponseEntity.notFound().build();
+        return shoppingCartService.removeItem(cartId, productId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{cartId}")
     public ResponseEntity<ShoppingCart> clearCart(@PathVariable String cartId) {
-        Optional<ShoppingCart> optionalCart = shoppingCartRepository.findById(cartId);
-        if (optionalCart.isPresent()) {
-            ShoppingCart cart = optionalCart.get();
-            cart.clearCart();
-            return ResponseEntity.ok(shoppingCartRepository.save(cart));
-        }
-        return ResponseEntity.notFound().build();
+        return shoppingCartService.clearItems(cartId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @PostMapping("/transfer")
@@ -96,28 +82,9 @@ public class ShoppingCartController {
             @RequestParam String sessionId,
             @RequestParam Long userId) {
         
-        Optional<ShoppingCart> sessionCart = shoppingCartRepository.findBySessionId(sessionId);
-        if (!sessionCart.isPresent()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
-        
-        Optional<ShoppingCart> userCart = shoppingCartRepository.findByUsuarioId(userId);
-        
-        if (userCart.isPresent()) {
-            ShoppingCart existingUserCart = userCart.get();
-            for (CartItem item : sessionCart.get().getItems()) {
-                existingUserCart.addItem(item);
-            }
-            
-            shoppingCartRepository.delete(sessionCart.get());
-            
-            return ResponseEntity.ok(shoppingCartRepository.save(existingUserCart));
-        } else {
-            ShoppingCart cartToTransfer = sessionCart.get();
-            cartToTransfer.setUsuarioId(userId);
-            cartToTransfer.setSessionId(null);
-            return ResponseEntity.ok(shoppingCartRepository.save(cartToTransfer));
-        }
+        return shoppingCartService.transferSessionCartToUser(sessionId, userId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
     @PostMapping("/create")
@@ -129,21 +96,9 @@ public class ShoppingCartController {
             return ResponseEntity.badRequest().build();
         }
         
-        ShoppingCart newCart;
         if (userId != null) {
-            Optional<ShoppingCart> existingCart = shoppingCartRepository.findByUsuarioId(userId);
-            if (existingCart.isPresent()) {
-                return ResponseEntity.ok(existingCart.get());
-            }
-            newCart = new ShoppingCart(null, userId);
-        } else {
-            Optional<ShoppingCart> existingCart = shoppingCartRepository.findBySessionId(sessionId);
-            if (existingCart.isPresent()) {
-                return ResponseEntity.ok(existingCart.get());
-            }
-            newCart = new ShoppingCart(sessionId, null);
+            return ResponseEntity.ok(shoppingCartService.getOrCreateByUsuarioId(userId));
         }
-        
-        return ResponseEntity.ok(shoppingCartRepository.save(newCart));
+        return ResponseEntity.ok(shoppingCartService.getOrCreateBySessionId(sessionId));
     }
 }
\ No newline at end of file
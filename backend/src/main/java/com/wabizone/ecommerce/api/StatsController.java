@@ -0,0 +1,71 @@
+package com.wabizone.ecommerce.api;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wabizone.ecommerce.services.CartExpiryService;
+import com.wabizone.ecommerce.services.IdempotencyStore;
+import com.wabizone.ecommerce.services.ProductCache;
+import com.wabizone.ecommerce.services.ProductService;
+import com.wabizone.ecommerce.services.ProductSuggester;
+import com.wabizone.ecommerce.services.ShoppingCartService;
+import com.wabizone.ecommerce.services.SingleFlight;
+
+@RestController
+@RequestMapping("/api/v1/stats")
+@CrossOrigin(origins = "*")
+public class StatsController {
+
+    private final ProductCache productCache;
+    private final ProductService productService;
+    private final ProductSuggester productSuggester;
+    private final IdempotencyStore idempotencyStore;
+    private final CartExpiryService cartExpiryService;
+    private final ShoppingCartService shoppingCartService;
+
+    public StatsController(ProductCache productCache, ProductService productService,
+            ProductSuggester productSuggester, IdempotencyStore idempotencyStore,
+            CartExpiryService cartExpiryService, ShoppingCartService shoppingCartService) {
+        this.productCache = productCache;
+        this.productService = productService;
+        this.productSuggester = productSuggester;
+        this.idempotencyStore = idempotencyStore;
+        this.cartExpiryService = cartExpiryService;
+        this.shoppingCartService = shoppingCartService;
+    }
+
+    @GetMapping("/product-cache")
+    public ResponseEntity<ProductCache.Stats> getProductCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @GetMapping("/product-coalescing")
+    public ResponseEntity<Map<String, SingleFlight.Stats>> getProductCoalescingStats() {
+        return ResponseEntity.ok(productService.getCoalescingStats());
+    }
+
+    @GetMapping("/product-suggest")
+    public ResponseEntity<ProductSuggester.Stats> getProductSuggestStats() {
+        return ResponseEntity.ok(productSuggester.stats());
+    }
+
+    @GetMapping("/idempotency")
+    public ResponseEntity<IdempotencyStore.Stats> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotencyStore.stats());
+    }
+
+    @GetMapping("/carts")
+    public ResponseEntity<CartExpiryService.Stats> getCartStats() {
+        return ResponseEntity.ok(cartExpiryService.stats());
+    }
+
+    @GetMapping("/cart-cache")
+    public ResponseEntity<ShoppingCartService.Stats> getCartCacheStats() {
+        return ResponseEntity.ok(shoppingCartService.stats());
+    }
+}
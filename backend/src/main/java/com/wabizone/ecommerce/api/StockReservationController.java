@@ -0,0 +1,52 @@
+package com.wabizone.ecommerce.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wabizone.ecommerce.api.request.StockReservationRequest;
+import com.wabizone.ecommerce.api.response.StockReservation;
+import com.wabizone.ecommerce.services.StockReservationService;
+
+@RestController
+@RequestMapping("/api/v1/stock/reservations")
+@CrossOrigin(origins = "*")
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    public StockReservationController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<StockReservation> reserve(@RequestBody StockReservationRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(stockReservationService.reserve(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{reservationId}/commit")
+    public ResponseEntity<Void> commit(@PathVariable String reservationId) {
+        if (stockReservationService.commit(reservationId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable String reservationId) {
+        if (stockReservationService.release(reservationId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -1,9 +1,12 @@
 package com.wabizone.ecommerce.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,20 +18,28 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.wabizone.ecommerce.api.request.UserCreationRequest;
+import com.wabizone.ecommerce.models.PedidoResumen;
 import com.wabizone.ecommerce.models.User;
+import com.wabizone.ecommerce.services.ImageTooLargeException;
+import com.wabizone.ecommerce.services.PedidoService;
 import com.wabizone.ecommerce.services.UserService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/api/v1/users")
 @CrossOrigin(origins = "*")
 public class UserController {
 
     private final UserService userService;
+    private final PedidoService pedidoService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, PedidoService pedidoService) {
         this.userService = userService;
+        this.pedidoService = pedidoService;
     }
 
     @PostMapping
@@ -52,6 +63,19 @@ public class UserController {
         return user.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/pedidos")
+    public ResponseEntity<List<PedidoResumen>> getPedidosDeUsuario(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int size) {
+        List<PedidoResumen> pedidos = pedidoService.getPedidosResumenByUsuario(id, beforeId, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (pedidos.size() == Math.min(Math.max(size, 1), PedidoService.MAX_PAGE_SIZE)) {
+            response.header("X-Next-Before-Id", String.valueOf(pedidos.get(pedidos.size() - 1).id()));
+        }
+        return response.body(pedidos);
+    }
+
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers(){
         return ResponseEntity.ok(userService.getAllUsers());
@@ -85,4 +109,27 @@ public class UserController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @PutMapping(value = "/{id}/imagen", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<User> uploadUserImage(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(userService.updateUserImage(id, body));
+        } catch (ImageTooLargeException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping(value = "/{id}/imagen", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<User> uploadUserImageMultipart(@PathVariable Long id, @RequestParam("imagen") MultipartFile imagen)
+            throws IOException {
+        try (InputStream body = imagen.getInputStream()) {
+            return ResponseEntity.ok(userService.updateUserImage(id, body));
+        } catch (ImageTooLargeException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
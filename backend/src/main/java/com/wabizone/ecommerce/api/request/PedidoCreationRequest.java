@@ -1,5 +1,7 @@
 package com.wabizone.ecommerce.api.request;
 
+import java.util.List;
+
 public record PedidoCreationRequest(
     Long nPedido, 
     String detallesPedido, 
@@ -13,5 +15,7 @@ public record PedidoCreationRequest(
     String codigoPostal,
     String telefono,
     String email,
-    String comentarios
+    String comentarios,
+    List<PedidoLineaRequest> lineas,
+    Long version
 ) {}
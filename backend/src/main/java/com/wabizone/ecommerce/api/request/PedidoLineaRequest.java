@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.api.request;
+
+public record PedidoLineaRequest(Long productId, int cantidad, double precioUnitario) {}
@@ -0,0 +1,5 @@
+package com.wabizone.ecommerce.api.request;
+
+import java.util.List;
+
+public record PedidoTransicionRequest(List<Long> ids, String estadoActual, String estadoNuevo) {}
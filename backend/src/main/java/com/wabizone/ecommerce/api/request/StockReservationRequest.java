@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.api.request;
+
+import java.util.List;
+
+public record StockReservationRequest(List<Item> items, Long ttlSeconds) {
+
+    public record Item(Long productId, int cantidad) {}
+}
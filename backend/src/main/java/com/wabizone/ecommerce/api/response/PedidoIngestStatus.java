@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.api.response;
+
+public record PedidoIngestStatus(Long nPedido, String estado, Long pedidoId, String error) {}
@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.api.response;
+
+import java.util.List;
+
+public record PedidoTransicionResult(String estadoNuevo, List<Long> actualizados, List<Conflicto> conflictos) {
+
+    public record Conflicto(Long id, String estadoActual, String motivo) {}
+}
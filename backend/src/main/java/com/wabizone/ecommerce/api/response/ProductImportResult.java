@@ -0,0 +1,9 @@
+package com.wabizone.ecommerce.api.response;
+
+import java.util.List;
+
+public record ProductImportResult(long rows, long upserted, long failed, List<RowError> errors, long elapsedMillis,
+        long rowsPerSecond) {
+
+    public record RowError(long row, String customId, String message) {}
+}
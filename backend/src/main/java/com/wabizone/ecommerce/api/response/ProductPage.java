@@ -0,0 +1,7 @@
+package com.wabizone.ecommerce.api.response;
+
+import java.util.List;
+
+import com.wabizone.ecommerce.models.ProductSummary;
+
+public record ProductPage(List<ProductSummary> items, String nextCursor) {}
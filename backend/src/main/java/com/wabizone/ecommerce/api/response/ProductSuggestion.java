@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.api.response;
+
+public record ProductSuggestion(Long id, String customId, String nombre) {}
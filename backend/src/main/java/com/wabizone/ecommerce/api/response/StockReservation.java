@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.api.response;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.wabizone.ecommerce.api.request.StockReservationRequest;
+
+public record StockReservation(String reservationId, Instant expiresAt, List<StockReservationRequest.Item> items) {}
@@ -39,9 +39,10 @@ public class DatabaseConfig {
             throw new RuntimeException("Error creating database: " + e.getMessage(), e);
         }
 
-        // Now create the actual datasource with the database
+        // Now create the actual datasource with the database.
+        // rewriteBatchedStatements lets the driver turn JDBC batches into multi-row statements
         return DataSourceBuilder.create()
-            .url(url + "/sga")
+            .url(url + "/sga?rewriteBatchedStatements=true")
             .username(username)
             .password(password)
             .driverClassName("com.mysql.cj.jdbc.Driver")
@@ -52,6 +53,11 @@ public class DatabaseConfig {
     public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
         ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
         populator.addScript(new ClassPathResource("db/migration/V1__init.sql"));
+        populator.addScript(new ClassPathResource("db/migration/V4__stock_reservation.sql"));
+        populator.addScript(new ClassPathResource("db/migration/V5__pedido_rollup.sql"));
+        populator.addScript(new ClassPathResource("db/migration/V6__pedido_numero.sql"));
+        populator.addScript(new ClassPathResource("db/migration/V7__pedido_archivo.sql"));
+        populator.addScript(new ClassPathResource("db/migration/V8__pedido_linea.sql"));
 
         DataSourceInitializer initializer = new DataSourceInitializer();
         initializer.setDataSource(dataSource);
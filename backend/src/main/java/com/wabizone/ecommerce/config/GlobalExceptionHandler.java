@@ -1,11 +1,20 @@
 package com.wabizone.ecommerce.config;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import com.wabizone.ecommerce.services.EstadoTransitionException;
+import com.wabizone.ecommerce.services.ImageTooLargeException;
+import com.wabizone.ecommerce.services.IngestQueueFullException;
+import com.wabizone.ecommerce.services.InsufficientStockException;
+import com.wabizone.ecommerce.services.LookupTimeoutException;
 
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -22,6 +31,22 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLocking(OptimisticLockingFailureException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "El registro ha sido modificado por otro usuario, recárguelo e inténtelo de nuevo");
+        body.put("error", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(EstadoTransitionException.class)
+    public ResponseEntity<Object> handleEstadoTransition(EstadoTransitionException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "Cambio de estado no permitido");
+        body.put("error", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(SQLException.class)
     public ResponseEntity<Object> handleSQLException(SQLException ex, WebRequest request) {
         Map<String, Object> body = new HashMap<>();
@@ -30,6 +55,41 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
+    @ExceptionHandler({ ImageTooLargeException.class, MaxUploadSizeExceededException.class })
+    public ResponseEntity<Object> handleImageTooLarge(RuntimeException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "La imagen es demasiado grande");
+        body.put("error", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Object> handleInsufficientStock(InsufficientStockException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "No hay stock suficiente");
+        body.put("error", ex.getMessage());
+        body.put("productos", ex.getProductIds());
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(LookupTimeoutException.class)
+    public ResponseEntity<Object> handleLookupTimeout(LookupTimeoutException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "El servicio está saturado, inténtelo de nuevo");
+        body.put("error", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<Object> handleIngestQueueFull(IngestQueueFullException ex, WebRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "Hay demasiados pedidos en curso, inténtelo de nuevo en unos segundos");
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAllUncaughtException(Exception ex, WebRequest request) {
         Map<String, Object> body = new HashMap<>();
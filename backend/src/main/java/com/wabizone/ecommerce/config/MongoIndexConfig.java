@@ -0,0 +1,127 @@
+package com.wabizone.ecommerce.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.bson.Document;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.wabizone.ecommerce.models.CartItem;
+import com.wabizone.ecommerce.models.ShoppingCart;
+
+/**
+ * Ensures the shopping_carts indexes at startup. Each cart owner (session or user) is unique
+ * among the carts that have one; the partial filter keeps carts without that field out of
+ * the index, so a missing owner never counts as a duplicate. Duplicate carts left over from
+ * before the index existed are merged first, and a failure to build an index stops startup
+ * rather than leaving the application running without it. Anonymous carts also carry a
+ * TTL index on their last update.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    @Bean
+    public CommandLineRunner ensureCartIndexes(MongoTemplate mongoTemplate,
+            @Value("${wabizone.carts.session-ttl-days:7}") long sessionTtlDays) {
+        return args -> {
+            IndexOperations indexes = mongoTemplate.indexOps(ShoppingCart.class);
+            mergeDuplicateCarts(mongoTemplate, "sessionId");
+            indexes.ensureIndex(uniqueOwner("sessionId", "ux_cart_session"));
+            mergeDuplicateCarts(mongoTemplate, "usuarioId");
+            indexes.ensureIndex(uniqueOwner("usuarioId", "ux_cart_usuario"));
+            // Anonymous carts are removed by the server itself once idle; user carts by CartExpiryService
+            Duration sessionTtl = Duration.ofDays(sessionTtlDays);
+            updateExpiry(mongoTemplate, indexes, "ttl_cart_session", sessionTtl);
+            indexes.ensureIndex(new Index().on("ultimaActualizacion", Sort.Direction.ASC)
+                    .expire(sessionTtl)
+                    .partial(PartialIndexFilter.of(Criteria.where("sessionId").exists(true)))
+                    .named("ttl_cart_session"));
+            indexes.ensureIndex(new Index().on("usuarioId", Sort.Direction.ASC).on("ultimaActualizacion", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("usuarioId").exists(true)))
+                    .named("ix_cart_usuario_actualizacion"));
+        };
+    }
+
+    private static Index uniqueOwner(String field, String name) {
+        return new Index().on(field, Sort.Direction.ASC)
+                .unique()
+                .partial(PartialIndexFilter.of(Criteria.where(field).exists(true)))
+                .named(name);
+    }
+
+    /**
+     * ensureIndex refuses to change the options of an existing index, so a new retention
+     * setting is applied to the TTL index in place with collMod before it is ensured.
+     */
+    private static void updateExpiry(MongoTemplate mongoTemplate, IndexOperations indexes, String name,
+            Duration expireAfter) {
+        indexes.getIndexInfo().stream()
+                .filter(info -> info.getName().equals(name))
+                .findFirst()
+                .flatMap(IndexInfo::getExpireAfter)
+                .filter(current -> !current.equals(expireAfter))
+                .ifPresent(current -> {
+                    mongoTemplate.executeCommand(new Document("collMod", mongoTemplate.getCollectionName(ShoppingCart.class))
+                            .append("index", new Document("name", name)
+                                    .append("expireAfterSeconds", expireAfter.toSeconds())));
+                    logger.info("Changed expiry of index {} from {} to {}", name, current, expireAfter);
+                });
+    }
+
+    /**
+     * Folds every group of carts sharing an owner into the most recently updated one, adding
+     * up quantities of the same product. The survivor is saved before the others are removed,
+     * so an interrupted merge can repeat items but never lose them.
+     */
+    private static void mergeDuplicateCarts(MongoTemplate mongoTemplate, String field) {
+        String collection = mongoTemplate.getCollectionName(ShoppingCart.class);
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(field).exists(true)),
+                Aggregation.group(field).count().as("carts"),
+                Aggregation.match(Criteria.where("carts").gt(1)));
+        List<Object> owners = mongoTemplate.aggregate(duplicates, collection, Document.class).getMappedResults().stream()
+                .map(group -> group.get("_id"))
+                .toList();
+
+        long removed = 0;
+        for (Object owner : owners) {
+            List<ShoppingCart> carts = mongoTemplate.find(Query.query(Criteria.where(field).is(owner))
+                    .with(Sort.by(Sort.Direction.DESC, "ultimaActualizacion")), ShoppingCart.class);
+            if (carts.size() < 2) {
+                continue;
+            }
+            ShoppingCart survivor = carts.get(0);
+            List<ShoppingCart> merged = carts.subList(1, carts.size());
+            for (ShoppingCart duplicate : merged) {
+                for (CartItem item : duplicate.getItems()) {
+                    survivor.addItem(item);
+                }
+            }
+            mongoTemplate.save(survivor);
+            for (ShoppingCart duplicate : merged) {
+                mongoTemplate.remove(duplicate);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.warn("Merged {} duplicate shopping carts for {} owners by {}", removed, owners.size(), field);
+        }
+    }
+}
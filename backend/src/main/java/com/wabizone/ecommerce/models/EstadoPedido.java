@@ -0,0 +1,49 @@
+package com.wabizone.ecommerce.models;
+
+import java.util.Optional;
+
+/**
+ * Order lifecycle. An order only moves forward through the list; any state before
+ * Entregado can also be cancelled. Entregado and Cancelado are final.
+ */
+public enum EstadoPedido {
+    PENDIENTE("Pendiente"),
+    PEDIDO("Pedido"),
+    EN_PRODUCCION("En Producción"),
+    EN_REPARTO("En Reparto"),
+    ENTREGADO("Entregado"),
+    CANCELADO("Cancelado");
+
+    private final String nombre;
+
+    EstadoPedido(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean isFinal() {
+        return this == ENTREGADO || this == CANCELADO;
+    }
+
+    public boolean puedePasarA(EstadoPedido destino) {
+        if (destino == this) {
+            return true;
+        }
+        if (isFinal()) {
+            return false;
+        }
+        return destino == CANCELADO || destino.ordinal() > ordinal();
+    }
+
+    public static Optional<EstadoPedido> fromNombre(String nombre) {
+        for (EstadoPedido estado : values()) {
+            if (estado.nombre.equals(nombre)) {
+                return Optional.of(estado);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,15 +1,32 @@
 package com.wabizone.ecommerce.models;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "Pedido")
+@Table(name = "Pedido", indexes = {
+    @Index(name = "idx_pedido_estado_id", columnList = "estado_pedido, id"),
+    @Index(name = "idx_pedido_fecha", columnList = "fecha_pedido"),
+    @Index(name = "idx_pedido_n_pedido", columnList = "n_pedido"),
+    // Covers the per-user order summary, so "my orders" never reads the detalles_pedido blob
+    @Index(name = "idx_pedido_usuario_resumen",
+            columnList = "usuario_id, id, n_pedido, estado_pedido, precio_total, fecha_pedido")
+})
 public class Pedido {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -54,9 +71,27 @@ public class Pedido {
     @Column(name = "comentarios")
     private String comentarios;
 
+    @Column(name = "fecha_pedido")
+    private LocalDateTime fechaPedido;
+
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
+    @JsonIgnore
+    @OneToMany(mappedBy = "pedido", fetch = FetchType.LAZY)
+    private List<PedidoLinea> lineas = new ArrayList<>();
+
     public Pedido() {
     }
 
+    @PrePersist
+    void onCreate() {
+        if (fechaPedido == null) {
+            fechaPedido = LocalDateTime.now();
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -183,4 +218,24 @@ public class Pedido {
     public void setComentarios(String comentarios) {
         this.comentarios = comentarios;
     }
+
+    public LocalDateTime getFechaPedido() {
+        return fechaPedido;
+    }
+
+    public void setFechaPedido(LocalDateTime fechaPedido) {
+        this.fechaPedido = fechaPedido;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<PedidoLinea> getLineas() {
+        return lineas;
+    }
 }
@@ -0,0 +1,93 @@
+package com.wabizone.ecommerce.models;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "pedido_linea", indexes = {
+    @Index(name = "idx_pedido_linea_pedido", columnList = "pedido_id"),
+    @Index(name = "idx_pedido_linea_product", columnList = "product_id")
+})
+public class PedidoLinea {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pedido_id", nullable = false)
+    private Pedido pedido;
+
+    @Column(name = "pedido_id", insertable = false, updatable = false)
+    private Long pedidoId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "cantidad", nullable = false)
+    private int cantidad;
+
+    @Column(name = "precio_unitario", nullable = false)
+    private double precioUnitario;
+
+    public PedidoLinea() {
+    }
+
+    public PedidoLinea(Long id, Long pedidoId, Long productId, int cantidad, double precioUnitario) {
+        this.id = id;
+        this.pedidoId = pedidoId;
+        this.productId = productId;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PedidoLinea other = (PedidoLinea) obj;
+        return Objects.equals(this.id, other.id);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Pedido getPedido() {
+        return pedido;
+    }
+
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public double getPrecioUnitario() {
+        return precioUnitario;
+    }
+}
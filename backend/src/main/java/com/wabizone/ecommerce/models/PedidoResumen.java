@@ -0,0 +1,5 @@
+package com.wabizone.ecommerce.models;
+
+import java.time.LocalDateTime;
+
+public record PedidoResumen(Long id, Long nPedido, String estadoPedido, double precioTotal, LocalDateTime fechaPedido) {}
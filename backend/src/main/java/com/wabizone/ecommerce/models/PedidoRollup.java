@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.models;
+
+public record PedidoRollup(String clave, long pedidos, double ingresos) {}
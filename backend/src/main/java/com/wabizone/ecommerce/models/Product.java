@@ -6,10 +6,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "Product")
+@Table(name = "Product", indexes = @Index(name = "idx_product_precio_id", columnList = "precio, id"))
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.models;
+
+public record ProductSummary(Long id, String customId, String nombre, int stock, double precio) {}
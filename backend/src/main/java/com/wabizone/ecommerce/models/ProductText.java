@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.models;
+
+public record ProductText(Long id, String customId, String nombre, String descripcion) {}
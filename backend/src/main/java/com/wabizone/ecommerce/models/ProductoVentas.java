@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.models;
+
+public record ProductoVentas(Long productId, Long unidades, Double ingresos) {}
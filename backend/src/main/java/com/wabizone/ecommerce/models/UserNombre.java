@@ -0,0 +1,3 @@
+package com.wabizone.ecommerce.models;
+
+public record UserNombre(Long id, String nombre) {}
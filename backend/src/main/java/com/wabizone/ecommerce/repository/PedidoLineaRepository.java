@@ -0,0 +1,19 @@
+package com.wabizone.ecommerce.repository;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.wabizone.ecommerce.models.PedidoLinea;
+import com.wabizone.ecommerce.models.ProductoVentas;
+
+public interface PedidoLineaRepository extends JpaRepository<PedidoLinea, Long> {
+    List<PedidoLinea> findByPedidoIdOrderByIdAsc(Long pedidoId);
+
+    @Query("SELECT new com.wabizone.ecommerce.models.ProductoVentas(l.productId, SUM(l.cantidad), "
+            + "SUM(l.cantidad * l.precioUnitario)) FROM PedidoLinea l WHERE l.productId = :productId "
+            + "GROUP BY l.productId")
+    Optional<ProductoVentas> findVentasByProductId(@Param("productId") Long productId);
+}
@@ -1,6 +1,19 @@
 package com.wabizone.ecommerce.repository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.wabizone.ecommerce.models.Pedido;
+import com.wabizone.ecommerce.models.PedidoResumen;
+
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido> {
 
-public interface PedidoRepository extends JpaRepository<Pedido, Long> {}
+    @Query("SELECT new com.wabizone.ecommerce.models.PedidoResumen(p.id, p.nPedido, p.estadoPedido, p.precioTotal, "
+            + "p.fechaPedido) FROM Pedido p WHERE p.usuarioId = :usuarioId AND p.id < :beforeId ORDER BY p.id DESC")
+    List<PedidoResumen> findResumenesByUsuario(@Param("usuarioId") Long usuarioId, @Param("beforeId") long beforeId,
+            Pageable pageable);
+}
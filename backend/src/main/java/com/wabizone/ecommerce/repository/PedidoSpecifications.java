@@ -0,0 +1,43 @@
+package com.wabizone.ecommerce.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.wabizone.ecommerce.models.Pedido;
+
+public final class PedidoSpecifications {
+
+    private PedidoSpecifications() {
+    }
+
+    public static Specification<Pedido> hasEstado(String estado) {
+        return (root, query, cb) -> estado == null
+                ? cb.isNull(root.get("estadoPedido"))
+                : cb.equal(root.get("estadoPedido"), estado);
+    }
+
+    public static Specification<Pedido> idBefore(Long beforeId) {
+        return (root, query, cb) -> beforeId == null ? null : cb.lessThan(root.get("id"), beforeId);
+    }
+
+    public static Specification<Pedido> hasUsuario(Long usuarioId) {
+        return (root, query, cb) -> usuarioId == null ? null : cb.equal(root.get("usuarioId"), usuarioId);
+    }
+
+    public static Specification<Pedido> fechaBetween(LocalDateTime desde, LocalDateTime hasta) {
+        return (root, query, cb) -> {
+            if (desde == null && hasta == null) {
+                return null;
+            }
+            if (desde == null) {
+                return cb.lessThan(root.get("fechaPedido"), hasta);
+            }
+            if (hasta == null) {
+                return cb.greaterThanOrEqualTo(root.get("fechaPedido"), desde);
+            }
+            return cb.and(cb.greaterThanOrEqualTo(root.get("fechaPedido"), desde),
+                    cb.lessThan(root.get("fechaPedido"), hasta));
+        };
+    }
+}
@@ -1,10 +1,30 @@
 package com.wabizone.ecommerce.repository;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.wabizone.ecommerce.models.Product;
+import com.wabizone.ecommerce.models.ProductSummary;
+import com.wabizone.ecommerce.models.ProductText;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByCustomId(String customId);
+
+    @Query("SELECT new com.wabizone.ecommerce.models.ProductSummary(p.id, p.customId, p.nombre, p.stock, p.precio) "
+            + "FROM Product p WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<ProductSummary> findSummariesAfterId(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT new com.wabizone.ecommerce.models.ProductSummary(p.id, p.customId, p.nombre, p.stock, p.precio) "
+            + "FROM Product p WHERE p.precio > :afterPrecio OR (p.precio = :afterPrecio AND p.id > :afterId) "
+            + "ORDER BY p.precio ASC, p.id ASC")
+    List<ProductSummary> findSummariesAfterPrecio(@Param("afterPrecio") double afterPrecio,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT new com.wabizone.ecommerce.models.ProductText(p.id, p.customId, p.nombre, p.descripcion) "
+            + "FROM Product p")
+    List<ProductText> findAllTexts();
 }
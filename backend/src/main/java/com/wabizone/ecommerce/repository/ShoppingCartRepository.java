@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import com.wabizone.ecommerce.models.ShoppingCart;
 
-public interface ShoppingCartRepository extends MongoRepository<ShoppingCart, String> {
+public interface ShoppingCartRepository extends MongoRepository<ShoppingCart, String>, ShoppingCartRepositoryCustom {
     
     Optional<ShoppingCart> findBySessionId(String sessionId);
     
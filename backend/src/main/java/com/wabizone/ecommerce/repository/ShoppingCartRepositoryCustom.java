@@ -0,0 +1,25 @@
+package com.wabizone.ecommerce.repository;
+
+import java.util.Optional;
+
+import com.wabizone.ecommerce.models.CartItem;
+import com.wabizone.ecommerce.models.ShoppingCart;
+
+/**
+ * Cart resolution and mutations done as single atomic operations on the server. Mutations
+ * return the updated cart, or empty when the cart does not exist.
+ */
+public interface ShoppingCartRepositoryCustom {
+
+    ShoppingCart getOrCreateBySessionId(String sessionId);
+
+    ShoppingCart getOrCreateByUsuarioId(Long usuarioId);
+
+    Optional<ShoppingCart> addItem(String cartId, CartItem item);
+
+    Optional<ShoppingCart> updateItemQuantity(String cartId, Long productoId, Integer cantidad);
+
+    Optional<ShoppingCart> removeItem(String cartId, Long productoId);
+
+    Optional<ShoppingCart> clearItems(String cartId);
+}
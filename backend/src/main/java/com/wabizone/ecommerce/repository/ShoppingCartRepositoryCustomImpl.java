@@ -0,0 +1,131 @@
+package com.wabizone.ecommerce.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.wabizone.ecommerce.models.CartItem;
+import com.wabizone.ecommerce.models.ShoppingCart;
+
+/**
+ * Each mutation is one findAndModify with an update pipeline: the first stage rewrites the
+ * items array, the second recomputes total from it. The whole change happens on the server
+ * under the document lock, so concurrent requests on the same cart cannot lose updates.
+ */
+public class ShoppingCartRepositoryCustomImpl implements ShoppingCartRepositoryCustom {
+
+    private static final String ITEM = "$$item";
+    private static final Document ITEMS = new Document("$ifNull", List.of("$items", List.of()));
+
+    private final MongoTemplate mongoTemplate;
+
+    public ShoppingCartRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public ShoppingCart getOrCreateBySessionId(String sessionId) {
+        return getOrCreate("sessionId", sessionId);
+    }
+
+    @Override
+    public ShoppingCart getOrCreateByUsuarioId(Long usuarioId) {
+        return getOrCreate("usuarioId", usuarioId);
+    }
+
+    /**
+     * Returns the cart owned by {@code field = value}, inserting an empty one if there is none,
+     * in one upsert. The unique index on the owner field turns a concurrent duplicate insert
+     * into a DuplicateKeyException; the other request's cart is then simply read back.
+     */
+    private ShoppingCart getOrCreate(String field, Object value) {
+        Query query = Query.query(Criteria.where(field).is(value));
+        Update update = new Update()
+                .setOnInsert("items", List.of())
+                .setOnInsert("total", 0.0)
+                .setOnInsert("ultimaActualizacion", new Date());
+        try {
+            return mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), ShoppingCart.class);
+        } catch (DuplicateKeyException e) {
+            return mongoTemplate.findOne(query, ShoppingCart.class);
+        }
+    }
+
+    @Override
+    public Optional<ShoppingCart> addItem(String cartId, CartItem item) {
+        Document sameProduct = new Document("$eq", List.of(ITEM + ".productoId", item.getProductoId()));
+        Document incremented = new Document("$mergeObjects", List.of(ITEM,
+                new Document("cantidad", new Document("$add", List.of(ITEM + ".cantidad", item.getCantidad())))));
+        Document items = new Document("$cond", new Document()
+                .append("if", new Document("$in", List.of(item.getProductoId(),
+                        new Document("$ifNull", List.of("$items.productoId", List.of())))))
+                .append("then", mapItems(new Document("$cond", List.of(sameProduct, incremented, ITEM))))
+                .append("else", new Document("$concatArrays", List.of(ITEMS,
+                        List.of(new Document("$literal", toDocument(item)))))));
+        return modify(cartId, items);
+    }
+
+    @Override
+    public Optional<ShoppingCart> updateItemQuantity(String cartId, Long productoId, Integer cantidad) {
+        Document sameProduct = new Document("$eq", List.of(ITEM + ".productoId", productoId));
+        Document updated = new Document("$mergeObjects", List.of(ITEM,
+                new Document("cantidad", new Document("$literal", cantidad))));
+        return modify(cartId, mapItems(new Document("$cond", List.of(sameProduct, updated, ITEM))));
+    }
+
+    @Override
+    public Optional<ShoppingCart> removeItem(String cartId, Long productoId) {
+        return modify(cartId, new Document("$filter", new Document()
+                .append("input", ITEMS)
+                .append("as", "item")
+                .append("cond", new Document("$ne", List.of(ITEM + ".productoId", productoId)))));
+    }
+
+    @Override
+    public Optional<ShoppingCart> clearItems(String cartId) {
+        return modify(cartId, new Document("$literal", List.of()));
+    }
+
+    private static Document mapItems(Document in) {
+        return new Document("$map", new Document()
+                .append("input", ITEMS)
+                .append("as", "item")
+                .append("in", in));
+    }
+
+    private Optional<ShoppingCart> modify(String cartId, Document items) {
+        Document total = new Document("$sum", new Document("$map", new Document()
+                .append("input", "$items")
+                .append("as", "item")
+                .append("in", new Document("$multiply", List.of(ITEM + ".precio", ITEM + ".cantidad")))));
+        AggregationOperation setItems = context -> new Document("$set", new Document("items", items));
+        AggregationOperation setTotal = context -> new Document("$set", new Document()
+                .append("total", new Document("$toDouble", total))
+                .append("ultimaActualizacion", "$$NOW"));
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(cartId)),
+                AggregationUpdate.from(List.of(setItems, setTotal)),
+                FindAndModifyOptions.options().returnNew(true),
+                ShoppingCart.class));
+    }
+
+    private static Document toDocument(CartItem item) {
+        return new Document()
+                .append("productoId", item.getProductoId())
+                .append("nombre", item.getNombre())
+                .append("cantidad", item.getCantidad())
+                .append("precio", item.getPrecio())
+                .append("opciones", item.getOpciones());
+    }
+}
@@ -1,11 +1,19 @@
 package com.wabizone.ecommerce.repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.wabizone.ecommerce.models.User;
+import com.wabizone.ecommerce.models.UserNombre;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByNombre(String nombre);
     Optional<User> findByNombreAndContrasena(String nombre, String contrasena);
+
+    @Query("SELECT new com.wabizone.ecommerce.models.UserNombre(u.id, u.nombre) FROM User u WHERE u.id IN :ids")
+    List<UserNombre> findNombresByIdIn(@Param("ids") Collection<Long> ids);
 }
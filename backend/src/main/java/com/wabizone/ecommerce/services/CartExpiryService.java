@@ -0,0 +1,115 @@
+package com.wabizone.ecommerce.services;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.models.ShoppingCart;
+
+/**
+ * Purges carts of registered users that have been idle longer than their retention.
+ * Anonymous carts expire through the TTL index instead (see MongoIndexConfig). Deletes go
+ * in small batches with a pause in between and a cap per run, so a large backlog is worked
+ * off gradually instead of in one burst against the primary.
+ */
+@Service
+public class CartExpiryService {
+
+    public record Stats(long runs, long cartsPurged, Instant lastRun, long lastRunPurged,
+            long sessionCarts, long userCarts) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(CartExpiryService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final long userRetentionDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMs;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong cartsPurged = new AtomicLong();
+    private final AtomicLong lastRunPurged = new AtomicLong();
+    private final AtomicReference<Instant> lastRun = new AtomicReference<>();
+
+    public CartExpiryService(MongoTemplate mongoTemplate,
+            @Value("${wabizone.carts.user-retention-days:90}") long userRetentionDays,
+            @Value("${wabizone.carts.sweep.batch-size:500}") int batchSize,
+            @Value("${wabizone.carts.sweep.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${wabizone.carts.sweep.pause-ms:200}") long pauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRetentionDays = userRetentionDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.pauseMs = pauseMs;
+    }
+
+    @Scheduled(fixedDelayString = "${wabizone.carts.sweep.interval-ms:3600000}",
+            initialDelayString = "${wabizone.carts.sweep.initial-delay-ms:600000}")
+    public void sweepScheduled() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            logger.warn("Cart sweep failed: {}", e.getMessage());
+        }
+    }
+
+    public synchronized long sweep() {
+        Date cutoff = Date.from(Instant.now().minus(userRetentionDays, ChronoUnit.DAYS));
+        Query stale = Query.query(Criteria.where("usuarioId").exists(true).and("ultimaActualizacion").lt(cutoff));
+        stale.fields().include("_id");
+        stale.limit(batchSize);
+
+        long purged = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Object> ids = mongoTemplate.find(stale, Document.class, collection()).stream()
+                    .map(document -> document.get("_id"))
+                    .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            // Re-check the cutoff so a cart touched since it was selected is kept
+            purged += mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)
+                    .and("ultimaActualizacion").lt(cutoff)), collection()).getDeletedCount();
+            if (ids.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        runs.incrementAndGet();
+        cartsPurged.addAndGet(purged);
+        lastRunPurged.set(purged);
+        lastRun.set(Instant.now());
+        if (purged > 0) {
+            logger.info("Purged {} user carts idle for more than {} days", purged, userRetentionDays);
+        }
+        return purged;
+    }
+
+    public Stats stats() {
+        long sessionCarts = mongoTemplate.count(Query.query(Criteria.where("sessionId").exists(true)), collection());
+        long userCarts = mongoTemplate.count(Query.query(Criteria.where("usuarioId").exists(true)), collection());
+        return new Stats(runs.get(), cartsPurged.get(), lastRun.get(), lastRunPurged.get(), sessionCarts, userCarts);
+    }
+
+    private String collection() {
+        return mongoTemplate.getCollectionName(ShoppingCart.class);
+    }
+}
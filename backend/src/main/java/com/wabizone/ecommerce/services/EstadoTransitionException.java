@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.services;
+
+public class EstadoTransitionException extends RuntimeException {
+
+    public EstadoTransitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,157 @@
+package com.wabizone.ecommerce.services;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Remembers the response of each request sent with an Idempotency-Key so a retry gets the
+ * stored response instead of repeating the write. A retry that arrives while the first
+ * request is still running waits for it. Keys are kept per scope, for a limited time and up
+ * to a maximum number of entries, in this instance's memory only.
+ */
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    public record Stats(long executed, long replayed, long mismatched, int entries) {}
+
+    private record Entry(String fingerprint, long expiresAt, CompletableFuture<ResponseEntity<?>> response) {}
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long waitTimeoutMillis;
+    private final Map<String, Entry> entries;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+
+    public IdempotencyStore(ObjectMapper objectMapper,
+            @Value("${wabizone.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${wabizone.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${wabizone.idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.entries = new LinkedHashMap<>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Runs {@code action} once per key. A repeat with the same request gets the first
+     * response back with the Idempotent-Replayed header; a repeat with a different request
+     * gets 422. Without a key the action simply runs. Failed attempts (exceptions and 5xx
+     * responses) are not remembered, so they can be retried.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        String storeKey = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+        CompletableFuture<ResponseEntity<?>> call = new CompletableFuture<>();
+        Entry existing;
+        synchronized (this) {
+            existing = entries.get(storeKey);
+            if (existing != null && existing.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(storeKey);
+                existing = null;
+            }
+            if (existing == null) {
+                entries.put(storeKey, new Entry(fingerprint, System.currentTimeMillis() + ttlMillis, call));
+            }
+        }
+
+        if (existing == null) {
+            executed.increment();
+            try {
+                ResponseEntity<T> response = action.get();
+                if (response.getStatusCode().is5xxServerError()) {
+                    forget(storeKey, call);
+                }
+                call.complete(response);
+                return response;
+            } catch (RuntimeException | Error e) {
+                forget(storeKey, call);
+                call.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        if (!existing.fingerprint().equals(fingerprint)) {
+            mismatched.increment();
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        ResponseEntity<T> original = (ResponseEntity<T>) await(existing.response(), key);
+        replayed.increment();
+        return ResponseEntity.status(original.getStatusCode())
+                .headers(original.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(original.getBody());
+    }
+
+    private ResponseEntity<?> await(CompletableFuture<ResponseEntity<?>> response, String key) {
+        try {
+            return response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new LookupTimeoutException("Tiempo de espera agotado para la petición con clave " + key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LookupTimeoutException("Interrumpido esperando la petición con clave " + key);
+        }
+    }
+
+    private synchronized void forget(String storeKey, CompletableFuture<ResponseEntity<?>> call) {
+        Entry entry = entries.get(storeKey);
+        if (entry != null && entry.response() == call) {
+            entries.remove(storeKey);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Petición no serializable: " + e.getMessage(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(executed.sum(), replayed.sum(), mismatched.sum(), entries.size());
+    }
+}
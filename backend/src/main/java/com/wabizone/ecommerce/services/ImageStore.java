@@ -0,0 +1,207 @@
+package com.wabizone.ecommerce.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Content-addressed image store. Decoded image bytes are written once to the local
+ * filesystem under their SHA-256 hash, and entities keep only the reference
+ * {@code /api/v1/images/<hash>} instead of a base64 data URI.
+ */
+@Service
+public class ImageStore {
+
+    public static final String REFERENCE_PREFIX = "/api/v1/images/";
+    private static final Logger logger = LoggerFactory.getLogger(ImageStore.class);
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String BASE64_MARKER = ";base64,";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final long maxBytes;
+
+    public ImageStore(@Value("${wabizone.images.directory:data/images}") String directory,
+            @Value("${wabizone.images.max-bytes:20971520}") long maxBytes) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio de imágenes " + root, e);
+        }
+        logger.info("Image store located at {}", root);
+    }
+
+    /**
+     * Replaces a base64 data URI by a reference to the stored bytes. Any other value
+     * (asset names, existing references, empty strings) is returned unchanged.
+     */
+    public String internalize(String imagen) {
+        if (imagen == null || !imagen.startsWith("data:")) {
+            return imagen;
+        }
+        int marker = imagen.indexOf(BASE64_MARKER);
+        if (marker < 0) {
+            return imagen;
+        }
+        byte[] bytes = Base64.getMimeDecoder().decode(imagen.substring(marker + BASE64_MARKER.length()));
+        return REFERENCE_PREFIX + store(bytes);
+    }
+
+    public String store(byte[] bytes) {
+        if (bytes.length > maxBytes) {
+            throw new ImageTooLargeException(maxBytes);
+        }
+        String hash = sha256(bytes);
+        Path target = pathFor(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(root, "upload-", ".tmp");
+            Files.write(temp, bytes);
+            publish(temp, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la imagen " + hash, e);
+        }
+        return hash;
+    }
+
+    /**
+     * Streams an upload to disk through a fixed-size buffer, hashing on the fly. The size
+     * limit is enforced while reading, so oversized bodies are never held in memory.
+     */
+    public String store(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new ImageTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            if (Files.exists(target)) {
+                Files.delete(temp);
+            } else {
+                Files.createDirectories(target.getParent());
+                publish(temp, target);
+            }
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Optional<Path> resolve(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public static Optional<String> hashOf(String reference) {
+        if (reference == null || !reference.startsWith(REFERENCE_PREFIX)) {
+            return Optional.empty();
+        }
+        String hash = reference.substring(REFERENCE_PREFIX.length());
+        return HASH_PATTERN.matcher(hash).matches() ? Optional.of(hash) : Optional.empty();
+    }
+
+    public String contentType(Path path) {
+        byte[] header = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+        if (read >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return "image/png";
+        }
+        if (read >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (read >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F') {
+            return "image/gif";
+        }
+        if (read >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    Path derivativePath(String hash, int size) {
+        return root.resolve("thumbs").resolve(Integer.toString(size)).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    Path root() {
+        return root;
+    }
+
+    void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(temp);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+}
@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.services;
+
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(long maxBytes) {
+        super("La imagen supera el tamaño máximo permitido de " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.services;
+
+public class IngestQueueFullException extends RuntimeException {
+
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.List;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Long> productIds;
+
+    public InsufficientStockException(List<Long> productIds) {
+        super("Stock insuficiente para los productos " + productIds);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,8 @@
+package com.wabizone.ecommerce.services;
+
+public class LookupTimeoutException extends RuntimeException {
+
+    public LookupTimeoutException(String message) {
+        super(message);
+    }
+}
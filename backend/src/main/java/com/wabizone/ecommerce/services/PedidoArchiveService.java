@@ -0,0 +1,160 @@
+package com.wabizone.ecommerce.services;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wabizone.ecommerce.models.Pedido;
+import com.wabizone.ecommerce.models.PedidoLinea;
+import com.wabizone.ecommerce.models.PedidoResumen;
+import com.wabizone.ecommerce.models.ProductoVentas;
+
+/**
+ * Moves delivered orders older than a configurable age, with their lines, from Pedido and
+ * pedido_linea into pedido_archivo and pedido_linea_archivo, a batch per transaction. The
+ * hot tables then only hold orders that are still moving; reads by id fall back to the
+ * archive.
+ */
+@Service
+public class PedidoArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoArchiveService.class);
+    private static final String ESTADO_ARCHIVABLE = "Entregado";
+    private static final String PEDIDO_COLUMNS = "id, n_pedido, detalles_pedido, estado_pedido, precio_total, "
+            + "usuario_id, nombre_usuario, nombre_completo, direccion, ciudad, codigo_postal, telefono, email, "
+            + "comentarios, fecha_pedido";
+    private static final String LINEA_COLUMNS = "id, pedido_id, product_id, cantidad, precio_unitario";
+
+    private static final RowMapper<Pedido> PEDIDO_MAPPER = (rs, rowNum) -> {
+        Pedido pedido = new Pedido();
+        pedido.setId(rs.getLong("id"));
+        pedido.setNPedido(rs.getObject("n_pedido", Long.class));
+        pedido.setDetallesPedido(rs.getString("detalles_pedido"));
+        pedido.setEstadoPedido(rs.getString("estado_pedido"));
+        pedido.setPrecioTotal(rs.getDouble("precio_total"));
+        pedido.setUsuarioId(rs.getObject("usuario_id", Long.class));
+        pedido.setNombreUsuario(rs.getString("nombre_usuario"));
+        pedido.setNombreCompleto(rs.getString("nombre_completo"));
+        pedido.setDireccion(rs.getString("direccion"));
+        pedido.setCiudad(rs.getString("ciudad"));
+        pedido.setCodigoPostal(rs.getString("codigo_postal"));
+        pedido.setTelefono(rs.getString("telefono"));
+        pedido.setEmail(rs.getString("email"));
+        pedido.setComentarios(rs.getString("comentarios"));
+        Timestamp fecha = rs.getTimestamp("fecha_pedido");
+        pedido.setFechaPedido(fecha == null ? null : fecha.toLocalDateTime());
+        return pedido;
+    };
+
+    private static final RowMapper<PedidoLinea> LINEA_MAPPER = (rs, rowNum) -> new PedidoLinea(
+            rs.getLong("id"), rs.getLong("pedido_id"), rs.getLong("product_id"), rs.getInt("cantidad"),
+            rs.getDouble("precio_unitario"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long minAgeDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public PedidoArchiveService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${wabizone.pedidos.archive.enabled:true}") boolean enabled,
+            @Value("${wabizone.pedidos.archive.min-age-days:365}") long minAgeDays,
+            @Value("${wabizone.pedidos.archive.batch-size:500}") int batchSize,
+            @Value("${wabizone.pedidos.archive.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    @Scheduled(fixedDelayString = "${wabizone.pedidos.archive.interval-ms:3600000}",
+            initialDelayString = "${wabizone.pedidos.archive.initial-delay-ms:300000}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives eligible orders, one short transaction per batch so the hot table is never
+     * locked for long. A run stops after max-batches-per-run batches, so a large backlog is
+     * drained over several runs instead of holding a scheduler thread for hours. Returns the
+     * number of orders moved.
+     */
+    public synchronized int archive() {
+        long start = System.currentTimeMillis();
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(minAgeDays));
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Archived {} pedidos older than {} days in {} ms", total, minAgeDays,
+                    System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Timestamp cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM Pedido WHERE estado_pedido = ? AND fecha_pedido < ? "
+                + "ORDER BY id LIMIT " + batchSize + " FOR UPDATE", Long.class, ESTADO_ARCHIVABLE, cutoff);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] params = ids.toArray();
+        jdbcTemplate.update("INSERT INTO pedido_archivo (" + PEDIDO_COLUMNS + ", archivado_en) SELECT "
+                + PEDIDO_COLUMNS + ", CURRENT_TIMESTAMP FROM Pedido WHERE id IN (" + in + ")", params);
+        jdbcTemplate.update("INSERT INTO pedido_linea_archivo (" + LINEA_COLUMNS + ") SELECT " + LINEA_COLUMNS
+                + " FROM pedido_linea WHERE pedido_id IN (" + in + ")", params);
+        jdbcTemplate.update("DELETE FROM pedido_linea WHERE pedido_id IN (" + in + ")", params);
+        return jdbcTemplate.update("DELETE FROM Pedido WHERE id IN (" + in + ")", params);
+    }
+
+    public Optional<Pedido> findPedido(long id) {
+        return jdbcTemplate.query("SELECT " + PEDIDO_COLUMNS + " FROM pedido_archivo WHERE id = ?", PEDIDO_MAPPER, id)
+                .stream().findFirst();
+    }
+
+    public List<PedidoLinea> findLineas(long pedidoId) {
+        return jdbcTemplate.query("SELECT " + LINEA_COLUMNS + " FROM pedido_linea_archivo WHERE pedido_id = ? ORDER BY id",
+                LINEA_MAPPER, pedidoId);
+    }
+
+    public List<PedidoResumen> findResumenesByUsuario(Long usuarioId, long beforeId, int limit) {
+        return jdbcTemplate.query("SELECT id, n_pedido, estado_pedido, precio_total, fecha_pedido FROM pedido_archivo "
+                + "WHERE usuario_id = ? AND id < ? ORDER BY id DESC LIMIT " + limit, (rs, rowNum) -> {
+                    Timestamp fecha = rs.getTimestamp("fecha_pedido");
+                    return new PedidoResumen(rs.getLong("id"), rs.getObject("n_pedido", Long.class),
+                            rs.getString("estado_pedido"), rs.getDouble("precio_total"),
+                            fecha == null ? null : fecha.toLocalDateTime());
+                }, usuarioId, beforeId);
+    }
+
+    public ProductoVentas findVentas(long productId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(cantidad), 0), COALESCE(SUM(cantidad * precio_unitario), 0) "
+                + "FROM pedido_linea_archivo WHERE product_id = ?",
+                (rs, rowNum) -> new ProductoVentas(productId, rs.getLong(1), rs.getDouble(2)), productId);
+    }
+}
@@ -0,0 +1,183 @@
+package com.wabizone.ecommerce.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams the order tables straight from a forward-only JDBC cursor to the response, one
+ * row at a time, so memory use does not depend on how many orders exist.
+ */
+@Service
+public class PedidoExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoExportService.class);
+    // Connector/J only streams rows one by one (instead of buffering the whole result) with this fetch size
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final String EXPORT_COLUMNS = "id, n_pedido, estado_pedido, precio_total, usuario_id, "
+            + "nombre_usuario, nombre_completo, direccion, ciudad, codigo_postal, telefono, email, comentarios, "
+            + "fecha_pedido, detalles_pedido";
+    private static final String EXPORT_SQL = "SELECT " + EXPORT_COLUMNS + " FROM Pedido ORDER BY id";
+    // Each table streams in its own primary key order; a sort over both tables would have to
+    // materialize the whole history before the first row could be sent
+    private static final String EXPORT_ARCHIVE_SQL = "SELECT " + EXPORT_COLUMNS + " FROM pedido_archivo ORDER BY id";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final ObjectMapper objectMapper;
+
+    public PedidoExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+        // Both queries read the same InnoDB snapshot, so an order archived between them is
+        // neither exported twice nor missed
+        this.snapshot = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every order in id order. With {@code includeArchived} the orders moved to
+     * pedido_archivo come first, in id order, followed by the live ones; what remains live is
+     * mostly newer, but old orders that were never delivered stay in Pedido.
+     */
+    public long export(OutputStream target, Format format, boolean gzip, boolean includeArchived) throws IOException {
+        long start = System.currentTimeMillis();
+        List<String> queries = includeArchived ? List.of(EXPORT_ARCHIVE_SQL, EXPORT_SQL) : List.of(EXPORT_SQL);
+        OutputStream out = gzip ? new GZIPOutputStream(target, 64 * 1024) : target;
+        long[] rows = new long[1];
+        try {
+            if (format == Format.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                stream(queries, csvWriter(writer, rows));
+                writer.flush();
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                generator.setRootValueSeparator(null);
+                stream(queries, ndjsonWriter(generator, rows));
+                generator.flush();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (out instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        logger.info("Exported {} pedidos as {} in {} ms ({} rows/s)", rows[0], format, elapsed, rows[0] * 1000 / elapsed);
+        return rows[0];
+    }
+
+    private void stream(List<String> queries, RowCallbackHandler handler) {
+        snapshot.executeWithoutResult(status -> {
+            for (String sql : queries) {
+                streamingJdbcTemplate.query(sql, handler);
+            }
+        });
+    }
+
+    private static RowCallbackHandler ndjsonWriter(JsonGenerator generator, long[] rows) {
+        return rs -> {
+            try {
+                ResultSetMetaData meta = rs.getMetaData();
+                generator.writeStartObject();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    generator.writeFieldName(meta.getColumnLabel(i));
+                    Object value = value(rs, i);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else if (value instanceof Number number) {
+                        generator.writeNumber(number.toString());
+                    } else {
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static RowCallbackHandler csvWriter(Writer writer, long[] rows) {
+        return new RowCallbackHandler() {
+            private boolean headerWritten;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                try {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    if (!headerWritten) {
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            if (i > 1) {
+                                writer.write(',');
+                            }
+                            writer.write(meta.getColumnLabel(i));
+                        }
+                        writer.write("\r\n");
+                        headerWritten = true;
+                    }
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        Object value = value(rs, i);
+                        if (value != null) {
+                            writer.write(csvEscape(value.toString()));
+                        }
+                    }
+                    writer.write("\r\n");
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static Object value(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return value;
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
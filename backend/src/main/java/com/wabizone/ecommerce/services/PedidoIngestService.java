@@ -0,0 +1,220 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.api.request.PedidoCreationRequest;
+import com.wabizone.ecommerce.api.request.PedidoLineaRequest;
+import com.wabizone.ecommerce.api.response.PedidoIngestStatus;
+import com.wabizone.ecommerce.models.Pedido;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Opt-in asynchronous order intake. Accepted orders get their number immediately and wait
+ * in a bounded queue; a single writer thread saves them in multi-row batches, flushing when
+ * a batch is full or the oldest queued order has waited long enough. A full queue rejects
+ * new orders instead of letting them pile up on request threads.
+ */
+@Service
+public class PedidoIngestService {
+
+    public static final String EN_COLA = "EN_COLA";
+    public static final String GUARDADO = "GUARDADO";
+    public static final String ERROR = "ERROR";
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoIngestService.class);
+
+    private record Pendiente(Pedido pedido, List<PedidoLineaRequest> lineas) {}
+
+    private final PedidoService pedidoService;
+    private final boolean enabled;
+    private final BlockingQueue<Pendiente> queue;
+    private final int batchSize;
+    private final long maxWaitMs;
+    private final long offerTimeoutMs;
+    private final int statusRetention;
+    private final Map<Long, PedidoIngestStatus> statuses = new ConcurrentHashMap<>();
+    private final Queue<Long> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private volatile boolean running;
+    private Thread writer;
+
+    public PedidoIngestService(PedidoService pedidoService,
+            @Value("${wabizone.pedidos.ingest.enabled:false}") boolean enabled,
+            @Value("${wabizone.pedidos.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${wabizone.pedidos.ingest.batch-size:200}") int batchSize,
+            @Value("${wabizone.pedidos.ingest.max-wait-ms:50}") long maxWaitMs,
+            @Value("${wabizone.pedidos.ingest.offer-timeout-ms:100}") long offerTimeoutMs,
+            @Value("${wabizone.pedidos.ingest.status-retention:100000}") int statusRetention) {
+        this.pedidoService = pedidoService;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxWaitMs = maxWaitMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.statusRetention = statusRetention;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "pedido-ingest");
+        writer.start();
+        logger.info("Pedido ingest enabled (queue capacity {}, batch size {})", queue.remainingCapacity(), batchSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues an order and returns its acknowledgement. Waits briefly for room when the queue
+     * is full, then gives up with {@link IngestQueueFullException}.
+     */
+    public PedidoIngestStatus submit(PedidoCreationRequest request) {
+        if (!enabled || !running) {
+            throw new IllegalStateException("La recepción asíncrona de pedidos no está activada");
+        }
+        Pedido pedido = pedidoService.prepararPedido(request);
+        PedidoIngestStatus status = new PedidoIngestStatus(pedido.getNPedido(), EN_COLA, null, null);
+        statuses.put(pedido.getNPedido(), status);
+        boolean accepted;
+        try {
+            accepted = queue.offer(new Pendiente(pedido, request.lineas()), offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            statuses.remove(pedido.getNPedido());
+            throw new IngestQueueFullException("Cola de pedidos llena");
+        }
+        return status;
+    }
+
+    /**
+     * Status of an order accepted here, or GUARDADO for one already in the database: the
+     * status map only covers this instance since its last start, and another instance may
+     * have taken the order.
+     */
+    public Optional<PedidoIngestStatus> getStatus(Long nPedido) {
+        PedidoIngestStatus status = statuses.get(nPedido);
+        if (status != null) {
+            return Optional.of(status);
+        }
+        return pedidoService.findPedidoIdByNumero(nPedido)
+                .map(id -> new PedidoIngestStatus(nPedido, GUARDADO, id, null));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<Pendiente> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pendiente first = queue.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pendiente next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and keep draining what is already queued
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pendiente> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            save(batch);
+            logger.debug("Saved {} queued pedidos in {} ms", batch.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} pedidos failed ({}), saving them one by one", batch.size(), e.getMessage());
+            for (Pendiente pendiente : batch) {
+                try {
+                    save(List.of(pendiente));
+                } catch (RuntimeException rowError) {
+                    logger.error("Could not save queued pedido {}: {}", pendiente.pedido().getNPedido(),
+                            rowError.getMessage());
+                    finish(new PedidoIngestStatus(pendiente.pedido().getNPedido(), ERROR, null, rowError.getMessage()));
+                }
+            }
+        }
+    }
+
+    private void save(List<Pendiente> batch) {
+        List<Pedido> pedidos = new ArrayList<>(batch.size());
+        List<List<PedidoLineaRequest>> lineas = new ArrayList<>(batch.size());
+        for (Pendiente pendiente : batch) {
+            pedidos.add(pendiente.pedido());
+            lineas.add(pendiente.lineas());
+        }
+        pedidoService.guardarPedidos(pedidos, lineas);
+        for (Pedido pedido : pedidos) {
+            finish(new PedidoIngestStatus(pedido.getNPedido(), GUARDADO, pedido.getId(), null));
+        }
+    }
+
+    private void finish(PedidoIngestStatus status) {
+        statuses.put(status.nPedido(), status);
+        finished.add(status.nPedido());
+        if (finishedCount.incrementAndGet() > statusRetention) {
+            Long oldest = finished.poll();
+            if (oldest != null) {
+                finishedCount.decrementAndGet();
+                statuses.remove(oldest);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            logger.error("{} queued pedidos were not saved before shutdown", queue.size());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.wabizone.ecommerce.services;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out order numbers from blocks reserved in pedido_numero_bloque (hi/lo). A block costs
+ * one UPDATE that advances the shared counter, so instances never overlap; numbers within a
+ * block are handed out with a single atomic increment. Numbers left in a block when the
+ * instance stops are skipped, so the sequence is unique and increasing per instance but may
+ * have gaps.
+ */
+@Service
+public class PedidoNumeroAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoNumeroAllocator.class);
+    private static final String CONTADOR = "pedido";
+
+    private record Block(AtomicLong next, long last) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+    private volatile Block block = new Block(new AtomicLong(1), 0);
+
+    public PedidoNumeroAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${wabizone.pedidos.numero.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Blocks are committed on their own, whatever happens to the order that asked for one
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Returns the next order number. Callers must not hold a transaction: a refill takes a
+     * second pooled connection, and request threads that each hold one while waiting for the
+     * refill could exhaust the pool and stall until the connection timeout.
+     */
+    public long next() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order numbers must be allocated outside a transaction");
+        }
+        while (true) {
+            Block current = block;
+            long numero = current.next().getAndIncrement();
+            if (numero <= current.last()) {
+                return numero;
+            }
+            refill(current);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        long last = reserveBlock();
+        block = new Block(new AtomicLong(last - blockSize + 1), last);
+        logger.debug("Reserved pedido numbers {}..{}", last - blockSize + 1, last);
+    }
+
+    private long reserveBlock() {
+        Long last = requiresNew.execute(status -> {
+            Long reserved = advance();
+            if (reserved != null) {
+                return reserved;
+            }
+            // First block ever: start after the highest number already used, archived orders included
+            jdbcTemplate.update("INSERT IGNORE INTO pedido_numero_bloque (nombre, siguiente) "
+                    + "SELECT ?, GREATEST((SELECT COALESCE(MAX(n_pedido), 0) FROM Pedido), "
+                    + "(SELECT COALESCE(MAX(n_pedido), 0) FROM pedido_archivo))", CONTADOR);
+            return advance();
+        });
+        if (last == null) {
+            throw new IllegalStateException("No se pudo reservar un bloque de números de pedido");
+        }
+        return last;
+    }
+
+    /**
+     * Advances the counter by one block and returns its new value in the same round trip:
+     * MySQL reports LAST_INSERT_ID(expr) back to the driver as the generated key.
+     */
+    private Long advance() {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE pedido_numero_bloque SET siguiente = LAST_INSERT_ID(siguiente + ?) WHERE nombre = ?",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, blockSize);
+                ps.setString(2, CONTADOR);
+                if (ps.executeUpdate() == 0) {
+                    return null;
+                }
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    return keys.next() ? keys.getLong(1) : null;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package com.wabizone.ecommerce.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wabizone.ecommerce.models.Pedido;
+import com.wabizone.ecommerce.models.PedidoRollup;
+
+/**
+ * Keeps order counts and revenue per day, status and user in the pedido_rollup table. Order
+ * writes apply signed deltas inside their own transaction, so dashboards read a few
+ * precomputed rows instead of summing the order table.
+ */
+@Service
+public class PedidoRollupService {
+
+    public enum Dimension { TOTAL, DIA, ESTADO, USUARIO }
+
+    /** The fields of an order that rollups depend on, captured before and after a change. */
+    public record Snapshot(LocalDateTime fechaPedido, String estadoPedido, Long usuarioId, double precioTotal) {
+        public static Snapshot of(Pedido pedido) {
+            return new Snapshot(pedido.getFechaPedido(), pedido.getEstadoPedido(), pedido.getUsuarioId(),
+                    pedido.getPrecioTotal());
+        }
+    }
+
+    private record Key(Dimension dimension, String clave) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byDimension = dimension.compareTo(other.dimension);
+            return byDimension != 0 ? byDimension : clave.compareTo(other.clave);
+        }
+    }
+
+    private record Delta(long pedidos, double ingresos) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(PedidoRollupService.class);
+    private static final String TOTAL_CLAVE = "*";
+    private static final String UPSERT_SQL = "INSERT INTO pedido_rollup (dimension, clave, pedidos, ingresos) "
+            + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE pedidos = pedidos + VALUES(pedidos), "
+            + "ingresos = ingresos + VALUES(ingresos)";
+    // Archived orders still count towards the rollups
+    private static final String PEDIDOS_SOURCE = "(SELECT CAST(fecha_pedido AS DATE) AS dia, estado_pedido, "
+            + "usuario_id, precio_total FROM Pedido UNION ALL SELECT CAST(fecha_pedido AS DATE), estado_pedido, usuario_id, "
+            + "precio_total FROM pedido_archivo) p";
+    // Select list and source of each dimension, after the dimension name column
+    private static final Map<Dimension, String> REBUILD_SELECT = Map.of(
+            Dimension.TOTAL, "'*', COUNT(*), COALESCE(SUM(precio_total), 0) FROM " + PEDIDOS_SOURCE,
+            Dimension.DIA, "CAST(dia AS CHAR(10)), COUNT(*), SUM(precio_total) FROM " + PEDIDOS_SOURCE
+                    + " WHERE dia IS NOT NULL GROUP BY dia",
+            Dimension.ESTADO, "estado_pedido, COUNT(*), SUM(precio_total) FROM " + PEDIDOS_SOURCE + " "
+                    + "WHERE estado_pedido IS NOT NULL GROUP BY estado_pedido",
+            Dimension.USUARIO, "CAST(usuario_id AS CHAR(20)), COUNT(*), SUM(precio_total) FROM " + PEDIDOS_SOURCE + " "
+                    + "WHERE usuario_id IS NOT NULL GROUP BY usuario_id");
+    private static final RowMapper<PedidoRollup> ROLLUP_MAPPER = (rs, rowNum) ->
+            new PedidoRollup(rs.getString("clave"), rs.getLong("pedidos"), rs.getDouble("ingresos"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PedidoRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Moves an order's contribution from {@code before} to {@code after}; pass null for a
+     * creation or a removal. Must run inside the transaction that changes the order and
+     * before the order row itself is written, so every writer (and the rebuild) locks rollup
+     * rows first and order rows second.
+     */
+    public void apply(Snapshot before, Snapshot after) {
+        Map<Key, Delta> deltas = new TreeMap<>();
+        if (before != null) {
+            addDeltas(deltas, before, -1);
+        }
+        if (after != null) {
+            addDeltas(deltas, after, 1);
+        }
+        upsert(deltas);
+    }
+
+    /** Adds the contribution of several new orders with a single batched upsert. */
+    public void applyCreated(List<Snapshot> created) {
+        applyChanges(List.of(), created);
+    }
+
+    /** Same as {@link #apply} for many orders at once, with a single batched upsert. */
+    public void applyChanges(List<Snapshot> before, List<Snapshot> after) {
+        Map<Key, Delta> deltas = new TreeMap<>();
+        for (Snapshot snapshot : before) {
+            addDeltas(deltas, snapshot, -1);
+        }
+        for (Snapshot snapshot : after) {
+            addDeltas(deltas, snapshot, 1);
+        }
+        upsert(deltas);
+    }
+
+    private void upsert(Map<Key, Delta> deltas) {
+        deltas.values().removeIf(delta -> delta.pedidos() == 0 && delta.ingresos() == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Key, Delta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getKey().dimension().name());
+            ps.setString(2, row.getKey().clave());
+            ps.setLong(3, row.getValue().pedidos());
+            ps.setDouble(4, row.getValue().ingresos());
+        });
+    }
+
+    private static void addDeltas(Map<Key, Delta> deltas, Snapshot snapshot, int sign) {
+        Delta delta = new Delta(sign, sign * snapshot.precioTotal());
+        merge(deltas, new Key(Dimension.TOTAL, TOTAL_CLAVE), delta);
+        if (snapshot.fechaPedido() != null) {
+            merge(deltas, new Key(Dimension.DIA, snapshot.fechaPedido().toLocalDate().toString()), delta);
+        }
+        if (snapshot.estadoPedido() != null) {
+            merge(deltas, new Key(Dimension.ESTADO, snapshot.estadoPedido()), delta);
+        }
+        if (snapshot.usuarioId() != null) {
+            merge(deltas, new Key(Dimension.USUARIO, snapshot.usuarioId().toString()), delta);
+        }
+    }
+
+    private static void merge(Map<Key, Delta> deltas, Key key, Delta delta) {
+        deltas.merge(key, delta, (a, b) -> new Delta(a.pedidos() + b.pedidos(), a.ingresos() + b.ingresos()));
+    }
+
+    public PedidoRollup getTotal() {
+        return find(Dimension.TOTAL, TOTAL_CLAVE).orElseGet(() -> new PedidoRollup(TOTAL_CLAVE, 0, 0));
+    }
+
+    public List<PedidoRollup> getPorDia(LocalDate desde, LocalDate hasta) {
+        return jdbcTemplate.query("SELECT clave, pedidos, ingresos FROM pedido_rollup "
+                + "WHERE dimension = ? AND clave >= ? AND clave <= ? AND pedidos > 0 ORDER BY clave",
+                ROLLUP_MAPPER, Dimension.DIA.name(), desde.toString(), hasta.toString());
+    }
+
+    public List<PedidoRollup> getPorEstado() {
+        return jdbcTemplate.query("SELECT clave, pedidos, ingresos FROM pedido_rollup "
+                + "WHERE dimension = ? AND pedidos > 0 ORDER BY clave", ROLLUP_MAPPER, Dimension.ESTADO.name());
+    }
+
+    public PedidoRollup getPorUsuario(Long usuarioId) {
+        String clave = usuarioId.toString();
+        return find(Dimension.USUARIO, clave).orElseGet(() -> new PedidoRollup(clave, 0, 0));
+    }
+
+    private Optional<PedidoRollup> find(Dimension dimension, String clave) {
+        return jdbcTemplate.query("SELECT clave, pedidos, ingresos FROM pedido_rollup WHERE dimension = ? AND clave = ?",
+                ROLLUP_MAPPER, dimension.name(), clave).stream().findFirst();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pedido_rollup WHERE dimension = ?",
+                Integer.class, Dimension.TOTAL.name());
+        if (rows == null || rows == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes every dimension from the order table, one transaction per dimension, all
+     * dimensions in parallel. Each dimension is swapped atomically, so readers never see it
+     * half rebuilt.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Dimension.values().length);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Dimension dimension : Dimension.values()) {
+                results.add(executor.submit(() -> rebuild(dimension)));
+            }
+            int rows = 0;
+            for (Future<Integer> result : results) {
+                rows += result.get();
+            }
+            logger.info("Rebuilt pedido rollups ({} rows) in {} ms", rows, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Reconstrucción de agregados interrumpida", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reconstruyendo agregados de pedidos: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int rebuild(Dimension dimension) {
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM pedido_rollup WHERE dimension = ?", dimension.name());
+            return jdbcTemplate.update("INSERT INTO pedido_rollup (dimension, clave, pedidos, ingresos) SELECT ?, "
+                    + REBUILD_SELECT.get(dimension), dimension.name());
+        });
+        return rows == null ? 0 : rows;
+    }
+}
@@ -1,14 +1,46 @@
 package com.wabizone.ecommerce.services;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.wabizone.ecommerce.api.request.PedidoCreationRequest;
+import com.wabizone.ecommerce.api.request.PedidoLineaRequest;
+import com.wabizone.ecommerce.api.request.PedidoTransicionRequest;
+import com.wabizone.ecommerce.api.response.PedidoTransicionResult;
+import com.wabizone.ecommerce.models.EstadoPedido;
 import com.wabizone.ecommerce.models.Pedido;
-import com.wabizone.ecommerce.models.User;
+import com.wabizone.ecommerce.models.PedidoLinea;
+import com.wabizone.ecommerce.models.PedidoResumen;
+import com.wabizone.ecommerce.models.ProductoVentas;
+import com.wabizone.ecommerce.models.UserNombre;
+import com.wabizone.ecommerce.repository.PedidoLineaRepository;
 import com.wabizone.ecommerce.repository.PedidoRepository;
+import com.wabizone.ecommerce.repository.PedidoSpecifications;
 import com.wabizone.ecommerce.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,32 +49,141 @@ import org.slf4j.LoggerFactory;
 public class PedidoService {
 
     private static final Logger logger = LoggerFactory.getLogger(PedidoService.class);
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_TRANSICION_IDS = 1000;
+    private static final int USER_LOOKUP_CHUNK = 1000;
+    private static final String INSERT_PEDIDO_SQL = "INSERT INTO Pedido (n_pedido, detalles_pedido, estado_pedido, "
+            + "precio_total, usuario_id, nombre_usuario, nombre_completo, direccion, ciudad, codigo_postal, telefono, "
+            + "email, comentarios, fecha_pedido) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private record LineaPendiente(long pedidoId, PedidoLineaRequest linea) {}
+
     private final PedidoRepository pedidoRepository;
     private final UserRepository userRepository;
+    private final UserNameCache userNameCache;
+    private final PedidoLineaRepository pedidoLineaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PedidoRollupService pedidoRollupService;
+    private final PedidoNumeroAllocator pedidoNumeroAllocator;
+    private final PedidoArchiveService pedidoArchiveService;
+    private final TransactionTemplate transactionTemplate;
 
-    public PedidoService(PedidoRepository pedidoRepository, UserRepository userRepository) {
+    public PedidoService(PedidoRepository pedidoRepository, UserRepository userRepository,
+            UserNameCache userNameCache, PedidoLineaRepository pedidoLineaRepository, JdbcTemplate jdbcTemplate,
+            PedidoRollupService pedidoRollupService, PedidoNumeroAllocator pedidoNumeroAllocator,
+            PedidoArchiveService pedidoArchiveService, TransactionTemplate transactionTemplate) {
         this.pedidoRepository = pedidoRepository;
         this.userRepository = userRepository;
+        this.userNameCache = userNameCache;
+        this.pedidoLineaRepository = pedidoLineaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pedidoRollupService = pedidoRollupService;
+        this.pedidoNumeroAllocator = pedidoNumeroAllocator;
+        this.pedidoArchiveService = pedidoArchiveService;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    /**
+     * Not transactional itself: the order number is allocated before the transaction opens,
+     * because refilling a number block needs a connection of its own.
+     */
     public Pedido createPedido(PedidoCreationRequest pedidoCreationRequest) {
-        logger.info("Creating new pedido with number: {}", pedidoCreationRequest.nPedido());
-        Pedido pedido = mapToPedido(pedidoCreationRequest);
-        
-        if (pedido.getUsuarioId() != null && (pedido.getNombreUsuario() == null || pedido.getNombreUsuario().isEmpty())) {
-            logger.debug("Completing user information for pedido");
-            Optional<User> user = userRepository.findById(pedido.getUsuarioId());
-            user.ifPresent(u -> pedido.setNombreUsuario(u.getNombre()));
-        }
-        
-        Pedido savedPedido = pedidoRepository.save(pedido);
+        Pedido pedido = prepararPedido(pedidoCreationRequest);
+        logger.info("Creating new pedido with number: {}", pedido.getNPedido());
+        Pedido savedPedido = transactionTemplate.execute(status -> {
+            completarInformacionUsuario(List.of(pedido));
+            pedidoRollupService.apply(null, PedidoRollupService.Snapshot.of(pedido));
+
+            Pedido saved = pedidoRepository.save(pedido);
+            insertLineas(saved.getId(), pedidoCreationRequest.lineas());
+            return saved;
+        });
         logger.info("Pedido created successfully with ID: {}", savedPedido.getId());
         return savedPedido;
     }
 
+    /**
+     * Validates a request and maps it to a new, unsaved order. The order number is always
+     * assigned here; whatever the client sent is ignored. Must be called outside a
+     * transaction (see {@link PedidoNumeroAllocator#next()}).
+     */
+    public Pedido prepararPedido(PedidoCreationRequest request) {
+        validarLineas(request.lineas());
+        Pedido pedido = mapToPedido(request);
+        if (pedido.getEstadoPedido() == null) {
+            pedido.setEstadoPedido(EstadoPedido.PENDIENTE.getNombre());
+        } else {
+            parseEstado(pedido.getEstadoPedido());
+        }
+        pedido.setNPedido(pedidoNumeroAllocator.next());
+        pedido.setFechaPedido(LocalDateTime.now());
+        return pedido;
+    }
+
+    /**
+     * Saves already prepared orders with one multi-row insert for the headers and one for all
+     * their lines, so a burst of orders costs a few statements instead of several per order.
+     * {@code lineas} is parallel to {@code pedidos}.
+     */
+    @Transactional
+    public void guardarPedidos(List<Pedido> pedidos, List<List<PedidoLineaRequest>> lineas) {
+        if (pedidos.isEmpty()) {
+            return;
+        }
+        completarInformacionUsuario(pedidos);
+        pedidoRollupService.applyCreated(pedidos.stream().map(PedidoRollupService.Snapshot::of).toList());
+
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PEDIDO_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Pedido pedido : pedidos) {
+                    setPedidoParameters(ps, pedido);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> generated = new ArrayList<>(pedidos.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getLong(1));
+                    }
+                }
+                return generated;
+            }
+        });
+        if (ids == null || ids.size() != pedidos.size()) {
+            throw new IllegalStateException("El lote de pedidos no devolvió todos los identificadores");
+        }
+
+        List<LineaPendiente> pendientes = new ArrayList<>();
+        for (int i = 0; i < pedidos.size(); i++) {
+            pedidos.get(i).setId(ids.get(i));
+            if (lineas.get(i) != null) {
+                for (PedidoLineaRequest linea : lineas.get(i)) {
+                    pendientes.add(new LineaPendiente(ids.get(i), linea));
+                }
+            }
+        }
+        insertLineas(pendientes);
+    }
+
+    private static void setPedidoParameters(PreparedStatement ps, Pedido pedido) throws SQLException {
+        ps.setObject(1, pedido.getNPedido());
+        ps.setString(2, pedido.getDetallesPedido());
+        ps.setString(3, pedido.getEstadoPedido());
+        ps.setDouble(4, pedido.getPrecioTotal());
+        ps.setObject(5, pedido.getUsuarioId());
+        ps.setString(6, pedido.getNombreUsuario());
+        ps.setString(7, pedido.getNombreCompleto());
+        ps.setString(8, pedido.getDireccion());
+        ps.setString(9, pedido.getCiudad());
+        ps.setString(10, pedido.getCodigoPostal());
+        ps.setString(11, pedido.getTelefono());
+        ps.setString(12, pedido.getEmail());
+        ps.setString(13, pedido.getComentarios());
+        ps.setTimestamp(14, Timestamp.valueOf(pedido.getFechaPedido()));
+    }
+
     private Pedido mapToPedido(PedidoCreationRequest createRequest) {
         Pedido pedido = new Pedido();
-        pedido.setNPedido(createRequest.nPedido());
         pedido.setDetallesPedido(createRequest.detallesPedido());
         pedido.setEstadoPedido(createRequest.estadoPedido());
         pedido.setPrecioTotal(createRequest.precioTotal());
@@ -58,31 +199,104 @@ public class PedidoService {
         return pedido;
     }
 
+    private static void validarLineas(List<PedidoLineaRequest> lineas) {
+        if (lineas == null) {
+            return;
+        }
+        for (PedidoLineaRequest linea : lineas) {
+            if (linea.productId() == null || linea.cantidad() <= 0) {
+                throw new IllegalArgumentException("Línea de pedido no válida: " + linea);
+            }
+        }
+    }
+
+    private void insertLineas(Long pedidoId, List<PedidoLineaRequest> lineas) {
+        if (lineas == null) {
+            return;
+        }
+        validarLineas(lineas);
+        insertLineas(lineas.stream().map(linea -> new LineaPendiente(pedidoId, linea)).toList());
+    }
+
+    private void insertLineas(List<LineaPendiente> lineas) {
+        if (lineas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO pedido_linea (pedido_id, product_id, cantidad, precio_unitario) VALUES (?, ?, ?, ?)",
+                lineas, lineas.size(), (ps, pendiente) -> {
+                    ps.setLong(1, pendiente.pedidoId());
+                    ps.setLong(2, pendiente.linea().productId());
+                    ps.setInt(3, pendiente.linea().cantidad());
+                    ps.setDouble(4, pendiente.linea().precioUnitario());
+                });
+    }
+
+    public List<PedidoLinea> getLineas(Long pedidoId) {
+        List<PedidoLinea> lineas = pedidoLineaRepository.findByPedidoIdOrderByIdAsc(pedidoId);
+        return lineas.isEmpty() ? pedidoArchiveService.findLineas(pedidoId) : lineas;
+    }
+
+    public ProductoVentas getVentasProducto(Long productId) {
+        ProductoVentas activas = pedidoLineaRepository.findVentasByProductId(productId)
+                .orElseGet(() -> new ProductoVentas(productId, 0L, 0.0));
+        ProductoVentas archivadas = pedidoArchiveService.findVentas(productId);
+        return new ProductoVentas(productId, activas.unidades() + archivadas.unidades(),
+                activas.ingresos() + archivadas.ingresos());
+    }
+
+    @Transactional
     public void removePedido(Long id) {
         logger.info("Removing pedido with ID: {}", id);
+        pedidoRepository.findById(id)
+                .ifPresent(pedido -> pedidoRollupService.apply(PedidoRollupService.Snapshot.of(pedido), null));
+        jdbcTemplate.update("DELETE FROM pedido_linea WHERE pedido_id = ?", id);
         pedidoRepository.deleteById(id);
         logger.info("Pedido removed successfully");
     }
 
+    /** Id of the saved order with this number, if any. */
+    public Optional<Long> findPedidoIdByNumero(long nPedido) {
+        return jdbcTemplate.queryForList("SELECT id FROM Pedido WHERE n_pedido = ? LIMIT 1", Long.class, nPedido)
+                .stream().findFirst();
+    }
+
     public Optional<Pedido> getPedido(final long id) {
         logger.debug("Fetching pedido with ID: {}", id);
-        return pedidoRepository.findById(id);
+        return pedidoRepository.findById(id).or(() -> pedidoArchiveService.findPedido(id));
+    }
+
+    public List<PedidoResumen> getPedidosResumenByUsuario(Long usuarioId, Long beforeId, int size) {
+        logger.debug("Fetching pedidos for user ID: {}", usuarioId);
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        long before = beforeId == null ? Long.MAX_VALUE : beforeId;
+        List<PedidoResumen> resumenes = new ArrayList<>(
+                pedidoRepository.findResumenesByUsuario(usuarioId, before, PageRequest.ofSize(limit)));
+        // Archived orders interleave by id with the active ones, so merge both newest-first pages
+        resumenes.addAll(pedidoArchiveService.findResumenesByUsuario(usuarioId, before, limit));
+        resumenes.sort(Comparator.comparing(PedidoResumen::id).reversed());
+        return resumenes.size() > limit ? resumenes.subList(0, limit) : resumenes;
     }
 
     public List<Pedido> getAllPedidos() {
         logger.debug("Fetching all pedidos");
         List<Pedido> pedidos = pedidoRepository.findAll();
-        pedidos.forEach(this::completarInformacionUsuario);
+        completarInformacionUsuario(pedidos);
         logger.debug("Retrieved {} pedidos", pedidos.size());
         return pedidos;
     }
     
+    @Transactional
     public Pedido updatePedido(Long id, PedidoCreationRequest pedidoUpdateRequest) {
         logger.info("Updating pedido with ID: {}", id);
         Optional<Pedido> existingPedido = pedidoRepository.findById(id);
         if (existingPedido.isPresent()) {
             Pedido pedido = existingPedido.get();
-            pedido.setNPedido(pedidoUpdateRequest.nPedido());
+            if (pedidoUpdateRequest.version() != null && !pedidoUpdateRequest.version().equals(pedido.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Pedido.class, id);
+            }
+            validarTransicion(pedido.getEstadoPedido(), pedidoUpdateRequest.estadoPedido());
+            PedidoRollupService.Snapshot before = PedidoRollupService.Snapshot.of(pedido);
             pedido.setDetallesPedido(pedidoUpdateRequest.detallesPedido());
             pedido.setEstadoPedido(pedidoUpdateRequest.estadoPedido());
             pedido.setPrecioTotal(pedidoUpdateRequest.precioTotal());
@@ -96,9 +310,14 @@ public class PedidoService {
             pedido.setEmail(pedidoUpdateRequest.email());
             pedido.setComentarios(pedidoUpdateRequest.comentarios());
             
-            completarInformacionUsuario(pedido);
+            completarInformacionUsuario(List.of(pedido));
+            pedidoRollupService.apply(before, PedidoRollupService.Snapshot.of(pedido));
             
             Pedido updatedPedido = pedidoRepository.save(pedido);
+            if (pedidoUpdateRequest.lineas() != null) {
+                jdbcTemplate.update("DELETE FROM pedido_linea WHERE pedido_id = ?", id);
+                insertLineas(id, pedidoUpdateRequest.lineas());
+            }
             logger.info("Pedido updated successfully");
             return updatedPedido;
         } else {
@@ -107,22 +326,144 @@ public class PedidoService {
         }
     }
     
-    public List<Pedido> getPedidosByEstado(String estado) {
+    private static EstadoPedido parseEstado(String nombre) {
+        return EstadoPedido.fromNombre(nombre)
+                .orElseThrow(() -> new IllegalArgumentException("Estado de pedido desconocido: " + nombre));
+    }
+
+    private static void validarTransicion(String actual, String nuevo) {
+        if (Objects.equals(actual, nuevo)) {
+            return;
+        }
+        EstadoPedido destino = parseEstado(nuevo);
+        // Orders saved before the state machine may hold free-form states; let them move to a known one
+        Optional<EstadoPedido> origen = EstadoPedido.fromNombre(actual);
+        if (origen.isPresent() && !origen.get().puedePasarA(destino)) {
+            throw new EstadoTransitionException("Un pedido en estado " + actual + " no puede pasar a " + nuevo);
+        }
+    }
+
+    /**
+     * Moves many orders from one state to another with a single UPDATE guarded by the expected
+     * current state. Orders that are missing or in another state are reported as conflicts
+     * and left untouched; the rest are updated and their version is bumped.
+     */
+    @Transactional
+    public PedidoTransicionResult transicionarPedidos(PedidoTransicionRequest request) {
+        if (request.ids() == null || request.ids().isEmpty() || request.ids().size() > MAX_TRANSICION_IDS) {
+            throw new IllegalArgumentException("Se necesitan entre 1 y " + MAX_TRANSICION_IDS + " pedidos");
+        }
+        EstadoPedido actual = parseEstado(request.estadoActual());
+        EstadoPedido nuevo = parseEstado(request.estadoNuevo());
+        if (actual == nuevo || !actual.puedePasarA(nuevo)) {
+            throw new EstadoTransitionException("Un pedido en estado " + actual.getNombre() + " no puede pasar a "
+                    + nuevo.getNombre());
+        }
+
+        List<Long> ids = new ArrayList<>(new TreeSet<>(request.ids()));
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, PedidoRollupService.Snapshot> encontrados = new HashMap<>();
+        jdbcTemplate.query("SELECT id, fecha_pedido, estado_pedido, usuario_id, precio_total FROM Pedido WHERE id IN ("
+                + in + ") ORDER BY id FOR UPDATE", rs -> {
+                    Timestamp fecha = rs.getTimestamp("fecha_pedido");
+                    encontrados.put(rs.getLong("id"), new PedidoRollupService.Snapshot(
+                            fecha == null ? null : fecha.toLocalDateTime(), rs.getString("estado_pedido"),
+                            rs.getObject("usuario_id", Long.class), rs.getDouble("precio_total")));
+                }, ids.toArray());
+
+        List<Long> actualizables = new ArrayList<>();
+        List<PedidoTransicionResult.Conflicto> conflictos = new ArrayList<>();
+        List<PedidoRollupService.Snapshot> antes = new ArrayList<>();
+        List<PedidoRollupService.Snapshot> despues = new ArrayList<>();
+        for (Long id : ids) {
+            PedidoRollupService.Snapshot snapshot = encontrados.get(id);
+            if (snapshot == null) {
+                conflictos.add(new PedidoTransicionResult.Conflicto(id, null, "Pedido no encontrado"));
+            } else if (!actual.getNombre().equals(snapshot.estadoPedido())) {
+                conflictos.add(new PedidoTransicionResult.Conflicto(id, snapshot.estadoPedido(),
+                        "El pedido no está en estado " + actual.getNombre()));
+            } else {
+                actualizables.add(id);
+                antes.add(snapshot);
+                despues.add(new PedidoRollupService.Snapshot(snapshot.fechaPedido(), nuevo.getNombre(),
+                        snapshot.usuarioId(), snapshot.precioTotal()));
+            }
+        }
+
+        if (!actualizables.isEmpty()) {
+            List<Object> params = new ArrayList<>();
+            params.add(nuevo.getNombre());
+            params.addAll(actualizables);
+            params.add(actual.getNombre());
+            jdbcTemplate.update("UPDATE Pedido SET estado_pedido = ?, version = version + 1 WHERE id IN ("
+                    + String.join(",", Collections.nCopies(actualizables.size(), "?")) + ") AND estado_pedido = ?",
+                    params.toArray());
+            pedidoRollupService.applyChanges(antes, despues);
+        }
+        logger.info("Moved {} pedidos from {} to {} ({} conflicts)", actualizables.size(), actual.getNombre(),
+                nuevo.getNombre(), conflictos.size());
+        return new PedidoTransicionResult(nuevo.getNombre(), actualizables, conflictos);
+    }
+
+    /**
+     * Newest-first page of orders in one status, read through the (estado_pedido, id) index.
+     * Pass the smallest id of the previous page as beforeId to get the next one.
+     */
+    public List<Pedido> getPedidosByEstado(String estado, Long beforeId, int size, Long usuarioId,
+            LocalDateTime desde, LocalDateTime hasta) {
         logger.debug("Fetching pedidos with estado: {}", estado);
-        List<Pedido> pedidos = pedidoRepository.findAll();
-        pedidos = pedidos.stream()
-                .filter(pedido -> pedido.getEstadoPedido().equals(estado))
-                .toList();
-        pedidos.forEach(this::completarInformacionUsuario);
+        Specification<Pedido> filter = Specification.where(PedidoSpecifications.hasEstado(estado))
+                .and(PedidoSpecifications.idBefore(beforeId))
+                .and(PedidoSpecifications.hasUsuario(usuarioId))
+                .and(PedidoSpecifications.fechaBetween(desde, hasta));
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Pedido> pedidos = pedidoRepository.findBy(filter,
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "id")).limit(limit).all());
+        completarInformacionUsuario(pedidos);
         logger.debug("Retrieved {} pedidos with estado: {}", pedidos.size(), estado);
         return pedidos;
     }
 
-    private void completarInformacionUsuario(Pedido pedido) {
-        if (pedido.getUsuarioId() != null && (pedido.getNombreUsuario() == null || pedido.getNombreUsuario().isEmpty())) {
-            logger.debug("Completing user information for pedido ID: {}", pedido.getId());
-            Optional<User> user = userRepository.findById(pedido.getUsuarioId());
-            user.ifPresent(u -> pedido.setNombreUsuario(u.getNombre()));
+    /**
+     * Fills in nombreUsuario for orders that lack it with a single id-to-name lookup for all
+     * distinct users referenced, answered from {@link UserNameCache} where possible.
+     */
+    private void completarInformacionUsuario(List<Pedido> pedidos) {
+        Set<Long> usuarioIds = new LinkedHashSet<>();
+        for (Pedido pedido : pedidos) {
+            if (pedido.getUsuarioId() != null && (pedido.getNombreUsuario() == null || pedido.getNombreUsuario().isEmpty())) {
+                usuarioIds.add(pedido.getUsuarioId());
+            }
+        }
+        if (usuarioIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> nombres = new HashMap<>(userNameCache.getAll(usuarioIds));
+        List<Long> missing = new ArrayList<>(usuarioIds);
+        missing.removeAll(nombres.keySet());
+        if (!missing.isEmpty()) {
+            logger.debug("Loading names for {} users", missing.size());
+            Map<Long, String> loaded = new HashMap<>();
+            for (int from = 0; from < missing.size(); from += USER_LOOKUP_CHUNK) {
+                List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + USER_LOOKUP_CHUNK));
+                for (UserNombre user : userRepository.findNombresByIdIn(chunk)) {
+                    if (user.nombre() != null) {
+                        loaded.put(user.id(), user.nombre());
+                    }
+                }
+            }
+            userNameCache.putAll(loaded);
+            nombres.putAll(loaded);
+        }
+
+        for (Pedido pedido : pedidos) {
+            if (pedido.getUsuarioId() != null && (pedido.getNombreUsuario() == null || pedido.getNombreUsuario().isEmpty())) {
+                String nombre = nombres.get(pedido.getUsuarioId());
+                if (nombre != null) {
+                    pedido.setNombreUsuario(nombre);
+                }
+            }
         }
     }
 }
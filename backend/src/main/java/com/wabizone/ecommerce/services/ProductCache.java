@@ -0,0 +1,144 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.models.Product;
+
+/**
+ * Bounded in-process cache for single product lookups, indexed by id and by customId.
+ * Entries are weighed by their approximate heap size (images included), evicted in LRU
+ * order once the weight budget is exceeded, and expire after a fixed TTL.
+ */
+@Service
+public class ProductCache {
+
+    public record Stats(long hits, long misses, long evictions, int entries, long weightBytes, long maxWeightBytes) {}
+
+    private record Entry(Product product, long weight, long expiresAt) {}
+
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final long maxWeightBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> byId = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> idByCustomId = new HashMap<>();
+    private long weightBytes;
+    private long epoch;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ProductCache(@Value("${wabizone.products.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+            @Value("${wabizone.products.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxWeightBytes = maxWeightBytes;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public synchronized Product getById(long id) {
+        Entry entry = byId.get(id);
+        if (entry == null || isExpired(entry)) {
+            if (entry != null) {
+                remove(id);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.product();
+    }
+
+    public synchronized Product getByCustomId(String customId) {
+        Long id = idByCustomId.get(customId);
+        if (id == null) {
+            misses++;
+            return null;
+        }
+        return getById(id);
+    }
+
+    /**
+     * Current invalidation epoch. Loaders read it before querying the database and hand it
+     * back to {@link #put}, so a value read before a concurrent write is never cached.
+     */
+    public synchronized long epoch() {
+        return epoch;
+    }
+
+    public synchronized void put(Product product, long loadEpoch) {
+        if (loadEpoch != epoch || product.getId() == null) {
+            return;
+        }
+        long weight = weigh(product);
+        if (weight > maxWeightBytes) {
+            return;
+        }
+        remove(product.getId());
+        byId.put(product.getId(), new Entry(product, weight, System.currentTimeMillis() + ttlMillis));
+        if (product.getCustomId() != null) {
+            idByCustomId.put(product.getCustomId(), product.getId());
+        }
+        weightBytes += weight;
+        evictIfNeeded();
+    }
+
+    public synchronized void invalidate(Long id) {
+        epoch++;
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        epoch++;
+        byId.clear();
+        idByCustomId.clear();
+        weightBytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, byId.size(), weightBytes, maxWeightBytes);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return entry.expiresAt() < System.currentTimeMillis();
+    }
+
+    private void remove(Long id) {
+        Entry removed = byId.remove(id);
+        if (removed != null) {
+            weightBytes -= removed.weight();
+            String customId = removed.product().getCustomId();
+            if (customId != null) {
+                idByCustomId.remove(customId, id);
+            }
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, Entry>> eldest = byId.entrySet().iterator();
+        while (weightBytes > maxWeightBytes && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            weightBytes -= entry.weight();
+            if (entry.product().getCustomId() != null) {
+                idByCustomId.remove(entry.product().getCustomId(), entry.product().getId());
+            }
+            evictions++;
+        }
+    }
+
+    private static long weigh(Product product) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (length(product.getCustomId()) + length(product.getNombre())
+                + length(product.getDescripcion()) + length(product.getImagen()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,327 @@
+package com.wabizone.ecommerce.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wabizone.ecommerce.api.request.ProductCreationRequest;
+import com.wabizone.ecommerce.api.response.ProductImportResult;
+
+/**
+ * Bulk upsert of products keyed on customId. Rows are streamed from the request body,
+ * validated one by one and written in chunks with a single JDBC batch per chunk, which
+ * the driver rewrites into multi-row INSERT ... ON DUPLICATE KEY UPDATE statements.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String UPSERT_SQL = "INSERT INTO Product (custom_id, nombre, descripcion, stock, precio) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE nombre = VALUES(nombre), "
+            + "descripcion = VALUES(descripcion), stock = VALUES(stock), precio = VALUES(precio)";
+
+    private record Row(long number, ProductCreationRequest product) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggester suggester;
+    private final int batchSize;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ProductCache productCache, ProductSearchIndex searchIndex,
+            ProductSuggester suggester, @Value("${wabizone.products.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.productCache = productCache;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * A JSON array of products. Rows that are not objects or do not map onto a product are
+     * reported as row errors; a syntax error ends the import at that point, keeping the rows
+     * already written and reporting where it stopped.
+     */
+    public ProductImportResult importJson(InputStream body) throws IOException {
+        Importer importer = new Importer();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Se esperaba un array JSON de productos");
+            }
+            // Number of the element being read, so a syntax error is reported against the right row
+            long rowNumber = 1;
+            try {
+                for (;; rowNumber++) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    if (token == null) {
+                        importer.reject(rowNumber, null, "JSON incompleto: falta el cierre del array");
+                        break;
+                    }
+                    if (token == JsonToken.VALUE_NULL) {
+                        importer.accept(rowNumber, null);
+                        continue;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        importer.rejectUnparsable(rowNumber, null, "Se esperaba un objeto JSON");
+                        continue;
+                    }
+                    // Reading the row as a tree first leaves the parser after the object even when
+                    // its values do not fit ProductCreationRequest
+                    JsonNode node = parser.readValueAsTree();
+                    ProductCreationRequest product;
+                    try {
+                        product = objectMapper.treeToValue(node, ProductCreationRequest.class);
+                    } catch (JsonProcessingException e) {
+                        JsonNode customId = node.get("customId");
+                        importer.rejectUnparsable(rowNumber, customId == null ? null : customId.asText(),
+                                "Valor no válido: " + e.getOriginalMessage());
+                        continue;
+                    }
+                    importer.accept(rowNumber, product);
+                }
+            } catch (JsonParseException e) {
+                importer.reject(rowNumber, null, "JSON mal formado, importación detenida: " + e.getOriginalMessage());
+            }
+            return importer.finish();
+        } finally {
+            importer.refresh();
+        }
+    }
+
+    /**
+     * CSV with a header line naming the columns customId, nombre, descripcion, stock and
+     * precio (any order). Fields may be double-quoted, with "" as an escaped quote.
+     */
+    public ProductImportResult importCsv(InputStream body) throws IOException {
+        Importer importer = new Importer();
+        try {
+            return importCsv(body, importer);
+        } finally {
+            importer.refresh();
+        }
+    }
+
+    private ProductImportResult importCsv(InputStream body, Importer importer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return importer.finish();
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> header = parseCsvLine(headerLine.replace("\uFEFF", ""));
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).strip().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("customid") || !columns.containsKey("nombre")) {
+                throw new IllegalArgumentException("La cabecera CSV debe incluir customId y nombre");
+            }
+
+            long rowNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parseCsvLine(line);
+                try {
+                    importer.accept(rowNumber, new ProductCreationRequest(
+                            field(fields, columns, "customid"),
+                            field(fields, columns, "nombre"),
+                            field(fields, columns, "descripcion"),
+                            parseInt(field(fields, columns, "stock")),
+                            parseDouble(field(fields, columns, "precio")),
+                            null));
+                } catch (NumberFormatException e) {
+                    importer.rejectUnparsable(rowNumber, field(fields, columns, "customid"), "Valor numérico no válido");
+                }
+            }
+        }
+        return importer.finish();
+    }
+
+    private final class Importer {
+        private final long start = System.currentTimeMillis();
+        private final List<Row> chunk = new ArrayList<>(batchSize);
+        private final List<ProductImportResult.RowError> errors = new ArrayList<>();
+        private long rows;
+        private long upserted;
+        private long failed;
+        private boolean refreshed;
+
+        void accept(long rowNumber, ProductCreationRequest product) {
+            rows++;
+            String problem = validate(product);
+            if (problem != null) {
+                reject(rowNumber, product == null ? null : product.customId(), problem);
+                return;
+            }
+            chunk.add(new Row(rowNumber, product));
+            if (chunk.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void rejectUnparsable(long rowNumber, String customId, String message) {
+            rows++;
+            reject(rowNumber, customId, message);
+        }
+
+        void reject(long rowNumber, String customId, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResult.RowError(rowNumber, customId, message));
+            }
+        }
+
+        ProductImportResult finish() {
+            flush();
+            refresh();
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            long rate = rows * 1000 / elapsed;
+            logger.info("Product import finished: {} rows, {} upserted, {} failed in {} ms ({} rows/s)",
+                    rows, upserted, failed, elapsed, rate);
+            return new ProductImportResult(rows, upserted, failed, List.copyOf(errors), elapsed, rate);
+        }
+
+        /**
+         * Brings the cache and search indexes back in line with the table. Called from a
+         * finally block too, so an import that fails halfway still refreshes what it wrote.
+         */
+        void refresh() {
+            if (refreshed || upserted == 0) {
+                return;
+            }
+            refreshed = true;
+            productCache.invalidateAll();
+            searchIndex.rebuild();
+            suggester.rebuild();
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(chunk));
+                upserted += chunk.size();
+            } catch (DataAccessException batchFailure) {
+                // Replay the chunk row by row to pin the failure on the offending rows
+                for (Row row : chunk) {
+                    try {
+                        writeBatch(List.of(row));
+                        upserted++;
+                    } catch (DataAccessException rowFailure) {
+                        reject(row.number(), row.product().customId(), rowFailure.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    private void writeBatch(List<Row> batch) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, row) -> {
+            ProductCreationRequest product = row.product();
+            ps.setString(1, product.customId().strip());
+            ps.setString(2, product.nombre());
+            ps.setString(3, product.descripcion());
+            ps.setInt(4, product.stock());
+            ps.setDouble(5, product.precio());
+        });
+    }
+
+    private static String validate(ProductCreationRequest product) {
+        if (product == null) {
+            return "Fila vacía";
+        }
+        if (product.customId() == null || product.customId().isBlank()) {
+            return "customId es obligatorio";
+        }
+        if (product.customId().strip().length() > 50) {
+            return "customId no puede superar 50 caracteres";
+        }
+        if (product.nombre() == null || product.nombre().isBlank()) {
+            return "nombre es obligatorio";
+        }
+        if (product.stock() < 0) {
+            return "stock no puede ser negativo";
+        }
+        if (product.precio() < 0 || Double.isNaN(product.precio())) {
+            return "precio no válido";
+        }
+        return null;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static int parseInt(String value) {
+        return value == null || value.isBlank() ? 0 : Integer.parseInt(value.strip());
+    }
+
+    private static double parseDouble(String value) {
+        return value == null || value.isBlank() ? 0 : Double.parseDouble(value.strip().replace(',', '.'));
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,200 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.api.response.ProductSearchHit;
+import com.wabizone.ecommerce.models.ProductText;
+import com.wabizone.ecommerce.repository.ProductRepository;
+
+/**
+ * In-memory inverted index over product nombre and descripcion ranked with BM25.
+ * Terms found in nombre count {@value #NOMBRE_WEIGHT} times, so name matches rank first.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final int NOMBRE_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private record Document(Long id, String customId, String nombre, int length, Set<String> terms) {}
+    // A product indexed or removed (text null) during a rebuild
+    private record PendingWrite(Long id, ProductText text) {}
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writes made while a rebuild is reading the table, replayed on top of what it read; null otherwise
+    private List<PendingWrite> writesDuringRebuild;
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        recordWrites(new ArrayList<>());
+        List<ProductText> texts;
+        try {
+            texts = productRepository.findAllTexts();
+        } catch (RuntimeException e) {
+            recordWrites(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            texts.forEach(this::add);
+            // A product written while the table was being read may be missing or stale in texts
+            for (PendingWrite write : writesDuringRebuild) {
+                delete(write.id());
+                if (write.text() != null) {
+                    add(write.text());
+                }
+            }
+            writesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product search index built with {} products and {} terms in {} ms",
+                texts.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    private void recordWrites(List<PendingWrite> log) {
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = log;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductText text) {
+        lock.writeLock().lock();
+        try {
+            delete(text.id());
+            add(text);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(new PendingWrite(text.id(), text));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(new PendingWrite(id, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSearchHit> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(query)));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<Long, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int df = termPostings.size();
+                double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                    int tf = posting.getValue();
+                    int length = documents.get(posting.getKey()).length();
+                    double norm = tf + K1 * (1 - B + B * length / averageLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+
+            PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Long, Double> score : scores.entrySet()) {
+                top.offer(score);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<ProductSearchHit> hits = new ArrayList<>(top.size());
+            for (Map.Entry<Long, Double> score : top) {
+                Document document = documents.get(score.getKey());
+                hits.add(new ProductSearchHit(document.id(), document.customId(), document.nombre(), score.getValue()));
+            }
+            hits.sort(Comparator.comparingDouble(ProductSearchHit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(ProductText text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : TextNormalizer.tokenize(text.nombre())) {
+            frequencies.merge(token, NOMBRE_WEIGHT, Integer::sum);
+        }
+        for (String token : TextNormalizer.tokenize(text.descripcion())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            postings.computeIfAbsent(frequency.getKey(), term -> new HashMap<>()).put(text.id(), frequency.getValue());
+            length += frequency.getValue();
+        }
+        documents.put(text.id(), new Document(text.id(), text.customId(), text.nombre(), length,
+                Set.copyOf(frequencies.keySet())));
+        totalLength += length;
+    }
+
+    private void delete(Long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length();
+        for (String term : document.terms()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
@@ -1,26 +1,64 @@
 package com.wabizone.ecommerce.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import com.wabizone.ecommerce.api.request.ProductCreationRequest;
+import com.wabizone.ecommerce.api.response.ProductPage;
+import com.wabizone.ecommerce.api.response.ProductSearchHit;
+import com.wabizone.ecommerce.api.response.ProductSuggestion;
 import com.wabizone.ecommerce.models.Product;
+import com.wabizone.ecommerce.models.ProductSummary;
+import com.wabizone.ecommerce.models.ProductText;
 import com.wabizone.ecommerce.repository.ProductRepository;
 
 @Service
 public class ProductService {
 
+    public static final String SORT_ID = "id";
+    public static final String SORT_PRECIO = "precio";
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
+    private final ImageStore imageStore;
+    private final ThumbnailService thumbnailService;
+    private final ProductCache productCache;
+    private final SingleFlight<Long, Optional<Product>> lookupsById;
+    private final SingleFlight<String, Optional<Product>> lookupsByCustomId;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggester suggester;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ImageStore imageStore,
+            ThumbnailService thumbnailService, ProductCache productCache, ProductSearchIndex searchIndex,
+            ProductSuggester suggester,
+            @Value("${wabizone.products.coalescing.timeout-ms:2000}") long coalescingTimeoutMillis) {
         this.productRepository = productRepository;
+        this.imageStore = imageStore;
+        this.thumbnailService = thumbnailService;
+        this.productCache = productCache;
+        this.lookupsById = new SingleFlight<>(coalescingTimeoutMillis);
+        this.lookupsByCustomId = new SingleFlight<>(coalescingTimeoutMillis);
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
     }
 
     public Product createProduct(ProductCreationRequest productCreationRequest) {
-        return productRepository.save(mapToProduct(productCreationRequest));
+        Product product = productRepository.save(mapToProduct(productCreationRequest));
+        ProductText text = toText(product);
+        searchIndex.index(text);
+        suggester.index(text);
+        thumbnailService.generateAsync(product.getImagen());
+        return product;
     }
 
     private Product mapToProduct(ProductCreationRequest createRequest) {
@@ -34,24 +72,114 @@ public class ProductService {
         product.setDescripcion(createRequest.descripcion());
         product.setStock(createRequest.stock());
         product.setPrecio(createRequest.precio());
-        product.setImagen(createRequest.imagen());
+        product.setImagen(imageStore.internalize(createRequest.imagen()));
         return product;
     }
 
     public void removeProduct(Long id) {
         productRepository.deleteById(id);
+        productCache.invalidate(id);
+        searchIndex.remove(id);
+        suggester.remove(id);
     }
 
     public Optional<Product> getProduct(final long id) {
-        return productRepository.findById(id);
+        Product cached = productCache.getById(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return lookupsById.execute(id, () -> {
+            long epoch = productCache.epoch();
+            Optional<Product> product = productRepository.findById(id);
+            product.ifPresent(p -> productCache.put(p, epoch));
+            return product;
+        });
     }
 
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
     
+    /**
+     * Keyset pagination over the catalog without loading imagen or descripcion.
+     * The cursor is opaque to clients: it encodes the sort key of the last row returned.
+     */
+    public ProductPage getProductPage(String after, int limit, String sort) {
+        if (!SORT_ID.equals(sort) && !SORT_PRECIO.equals(sort)) {
+            throw new IllegalArgumentException("Orden no soportado: " + sort);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest window = PageRequest.ofSize(pageSize + 1);
+
+        List<ProductSummary> rows;
+        if (SORT_ID.equals(sort)) {
+            long afterId = after == null || after.isEmpty() ? 0L : decodeCursor(after, sort)[0].longValue();
+            rows = productRepository.findSummariesAfterId(afterId, window);
+        } else if (after == null || after.isEmpty()) {
+            rows = productRepository.findSummariesAfterPrecio(-Double.MAX_VALUE, 0L, window);
+        } else {
+            Number[] cursor = decodeCursor(after, sort);
+            rows = productRepository.findSummariesAfterPrecio(cursor[1].doubleValue(), cursor[0].longValue(), window);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new ProductPage(rows, null);
+        }
+        List<ProductSummary> items = rows.subList(0, pageSize);
+        return new ProductPage(List.copyOf(items), encodeCursor(items.get(pageSize - 1), sort));
+    }
+
+    private String encodeCursor(ProductSummary last, String sort) {
+        String raw = SORT_ID.equals(sort)
+                ? sort + ":" + last.id()
+                : sort + ":" + last.id() + ":" + Double.doubleToLongBits(last.precio());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Number[] decodeCursor(String cursor, String sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (!parts[0].equals(sort) || parts.length != (SORT_ID.equals(sort) ? 2 : 3)) {
+                throw new IllegalArgumentException("Cursor no válido para el orden " + sort);
+            }
+            Long id = Long.parseLong(parts[1]);
+            if (SORT_ID.equals(sort)) {
+                return new Number[] { id };
+            }
+            return new Number[] { id, Double.longBitsToDouble(Long.parseLong(parts[2])) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor no válido", e);
+        }
+    }
+
     public Optional<Product> findProductByCustomId(String customId) {
-        return productRepository.findByCustomId(customId);
+        Product cached = productCache.getByCustomId(customId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return lookupsByCustomId.execute(customId, () -> {
+            long epoch = productCache.epoch();
+            Optional<Product> product = productRepository.findByCustomId(customId);
+            product.ifPresent(p -> productCache.put(p, epoch));
+            return product;
+        });
+    }
+
+    public List<ProductSearchHit> searchProducts(String query, int limit) {
+        return searchIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    public List<ProductSuggestion> suggestProducts(String prefix, int limit) {
+        return suggester.suggest(prefix, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    private static ProductText toText(Product product) {
+        return new ProductText(product.getId(), product.getCustomId(), product.getNombre(), product.getDescripcion());
+    }
+
+    public Map<String, SingleFlight.Stats> getCoalescingStats() {
+        return Map.of("byId", lookupsById.stats(), "byCustomId", lookupsByCustomId.stats());
     }
     
     public Product updateProduct(Long id, ProductCreationRequest productUpdateRequest) {
@@ -62,17 +190,36 @@ public class ProductService {
             product.setDescripcion(productUpdateRequest.descripcion());
             product.setStock(productUpdateRequest.stock());
             product.setPrecio(productUpdateRequest.precio());
-            product.setImagen(productUpdateRequest.imagen());
-            return productRepository.save(product);
+            product.setImagen(imageStore.internalize(productUpdateRequest.imagen()));
+            Product updatedProduct = productRepository.save(product);
+            productCache.invalidate(id);
+            ProductText text = toText(updatedProduct);
+            searchIndex.index(text);
+            suggester.index(text);
+            thumbnailService.generateAsync(updatedProduct.getImagen());
+            return updatedProduct;
         } else {
             throw new RuntimeException("Producto con id " + id + " no encontrado");
         }
     }
     
+    public Product updateProductImage(Long id, InputStream imageData) throws IOException {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto con id " + id + " no encontrado"));
+        product.setImagen(ImageStore.REFERENCE_PREFIX + imageStore.store(imageData));
+        Product updatedProduct = productRepository.save(product);
+        productCache.invalidate(id);
+        thumbnailService.generateAsync(updatedProduct.getImagen());
+        return updatedProduct;
+    }
+    
     public void removeProductByCustomId(String customId) {
-        Optional<Product> product = findProductByCustomId(customId);
+        Optional<Product> product = productRepository.findByCustomId(customId);
         if (product.isPresent()) {
             productRepository.delete(product.get());
+            productCache.invalidate(product.get().getId());
+            searchIndex.remove(product.get().getId());
+            suggester.remove(product.get().getId());
         } else {
             throw new RuntimeException("Producto con customId " + customId + " no encontrado");
         }
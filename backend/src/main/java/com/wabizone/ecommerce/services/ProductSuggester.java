@@ -0,0 +1,304 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.api.response.ProductSuggestion;
+import com.wabizone.ecommerce.models.ProductText;
+import com.wabizone.ecommerce.repository.ProductRepository;
+
+/**
+ * Prefix autocomplete over product names. Every folded name is inserted into a compact
+ * trie (sorted char arrays per node, no per-edge objects) once per word start, so
+ * "jug" finds "Camión de juguete".
+ */
+@Service
+public class ProductSuggester {
+
+    public record Stats(int products, int nodes, int edges, int postings, long estimatedBytes, long bytesPerProduct) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+    private static final int MAX_KEY_LENGTH = 48;
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final long[] NO_IDS = new long[0];
+
+    // A product indexed or removed (text null) during a rebuild
+    private record PendingWrite(Long id, ProductText text) {}
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        long[] ids = NO_IDS;
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node node = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = node;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return node;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0 && ids.length == 0;
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writes made while a rebuild is reading the table, replayed on top of what it read; null otherwise
+    private List<PendingWrite> writesDuringRebuild;
+    private final Map<Long, ProductSuggestion> suggestions = new HashMap<>();
+    private Node root = new Node();
+
+    public ProductSuggester(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        recordWrites(new ArrayList<>());
+        List<ProductText> texts;
+        try {
+            texts = productRepository.findAllTexts();
+        } catch (RuntimeException e) {
+            recordWrites(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            suggestions.clear();
+            texts.forEach(this::add);
+            // A product written while the table was being read may be missing or stale in texts
+            for (PendingWrite write : writesDuringRebuild) {
+                delete(write.id());
+                if (write.text() != null) {
+                    add(write.text());
+                }
+            }
+            writesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Stats stats = stats();
+        logger.info("Product suggester built with {} products, {} nodes (~{} bytes/product) in {} ms",
+                stats.products(), stats.nodes(), stats.bytesPerProduct(), System.currentTimeMillis() - start);
+    }
+
+    private void recordWrites(List<PendingWrite> log) {
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = log;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductText text) {
+        lock.writeLock().lock();
+        try {
+            delete(text.id());
+            add(text);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(new PendingWrite(text.id(), text));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(new PendingWrite(id, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = TextNormalizer.fold(prefix).strip();
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            Set<Long> ids = new LinkedHashSet<>();
+            collect(node, ids, limit);
+            List<ProductSuggestion> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                result.add(suggestions.get(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            int[] counts = new int[3];
+            count(root, counts);
+            int nodes = counts[0];
+            int edges = counts[1];
+            int postings = counts[2];
+            // Node header + three array references, plus one char and one reference per edge and 8 bytes per id
+            long estimatedBytes = nodes * 64L + edges * 6L + postings * 8L;
+            // Per suggestion: map entry, boxed key, record, and its two strings (headers + Latin-1 bytes)
+            for (ProductSuggestion suggestion : suggestions.values()) {
+                estimatedBytes += 72 + stringBytes(suggestion.customId()) + stringBytes(suggestion.nombre());
+            }
+            int products = suggestions.size();
+            return new Stats(products, nodes, edges, postings, estimatedBytes,
+                    products == 0 ? 0 : estimatedBytes / products);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(Node node, Set<Long> ids, int limit) {
+        for (long id : node.ids) {
+            ids.add(id);
+            if (ids.size() >= limit) {
+                return;
+            }
+        }
+        for (Node child : node.children) {
+            collect(child, ids, limit);
+            if (ids.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40L + value.length();
+    }
+
+    private void count(Node node, int[] counts) {
+        counts[0]++;
+        counts[1] += node.labels.length;
+        counts[2] += node.ids.length;
+        for (Node child : node.children) {
+            count(child, counts);
+        }
+    }
+
+    /**
+     * Trie keys of a name: the folded name from each word start. Not stored per product; removal
+     * recomputes them from the name kept in the suggestion, which is far smaller.
+     */
+    private static List<String> keys(String nombre) {
+        String folded = TextNormalizer.fold(nombre).strip();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(folded.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(folded.charAt(i))) {
+                keys.add(folded.substring(i, Math.min(folded.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+
+    private void add(ProductText text) {
+        List<String> keys = keys(text.nombre());
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (String key : keys) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.addChild(key.charAt(i));
+            }
+            long[] ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+            ids[ids.length - 1] = text.id();
+            node.ids = ids;
+        }
+        suggestions.put(text.id(), new ProductSuggestion(text.id(), text.customId(), text.nombre()));
+    }
+
+    private void delete(Long id) {
+        ProductSuggestion suggestion = suggestions.remove(id);
+        if (suggestion == null) {
+            return;
+        }
+        for (String key : keys(suggestion.nombre())) {
+            removeKey(root, key, 0, id);
+        }
+    }
+
+    private void removeKey(Node node, String key, int depth, long id) {
+        if (depth == key.length()) {
+            long[] remaining = Arrays.stream(node.ids).filter(existing -> existing != id).toArray();
+            node.ids = remaining.length == 0 ? NO_IDS : remaining;
+            return;
+        }
+        char label = key.charAt(depth);
+        Node child = node.child(label);
+        if (child == null) {
+            return;
+        }
+        removeKey(child, key, depth + 1, id);
+        if (child.isEmpty()) {
+            node.removeChild(label);
+        }
+    }
+}
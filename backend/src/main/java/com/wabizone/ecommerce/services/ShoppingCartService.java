@@ -0,0 +1,465 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.wabizone.ecommerce.models.CartItem;
+import com.wabizone.ecommerce.models.ShoppingCart;
+import com.wabizone.ecommerce.repository.ShoppingCartRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cart operations. By default every mutation is one atomic update in MongoDB. With
+ * {@code wabizone.carts.write-behind.enabled} active carts are instead kept in a bounded LRU
+ * map and mutated in memory under a per-cart lock; dirty carts are written back in bulk batches
+ * every flush interval, when evicted and on shutdown. Write-behind assumes a cart is only
+ * served by one instance (single node or sticky sessions), and mutations acknowledged since
+ * the last flush are lost if the process dies.
+ */
+@Service
+public class ShoppingCartService {
+
+    public record Stats(boolean writeBehind, int entries, long mutations, long writes, long evictions) {}
+
+    private static final Logger logger = LoggerFactory.getLogger(ShoppingCartService.class);
+
+    /**
+     * A cart held in memory. {@code loaded} completes once the loading thread has read the
+     * document; {@code retiring} marks an entry that is being written back and is about to
+     * leave the map (or is locked by a transfer). It stays in the map until its write has
+     * landed, so no other thread reads MongoDB for that cart in the meantime.
+     */
+    private static final class CachedCart {
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private ShoppingCart cart;
+        private boolean dirty;
+        private boolean writing;
+        private volatile boolean retiring;
+    }
+
+    private final ShoppingCartRepository shoppingCartRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean writeBehind;
+    private final int maxEntries;
+    private final int flushBatchSize;
+    private final Map<String, CachedCart> carts = new LinkedHashMap<>(256, 0.75f, true);
+    private final LongAdder mutations = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ShoppingCartService(ShoppingCartRepository shoppingCartRepository, MongoTemplate mongoTemplate,
+            @Value("${wabizone.carts.write-behind.enabled:false}") boolean writeBehind,
+            @Value("${wabizone.carts.write-behind.max-entries:10000}") int maxEntries,
+            @Value("${wabizone.carts.write-behind.flush-batch-size:500}") int flushBatchSize) {
+        this.shoppingCartRepository = shoppingCartRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.writeBehind = writeBehind;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+    }
+
+    public ShoppingCart getOrCreateBySessionId(String sessionId) {
+        return current(shoppingCartRepository.getOrCreateBySessionId(sessionId));
+    }
+
+    public ShoppingCart getOrCreateByUsuarioId(Long usuarioId) {
+        return current(shoppingCartRepository.getOrCreateByUsuarioId(usuarioId));
+    }
+
+    public Optional<ShoppingCart> addItem(String cartId, CartItem item) {
+        if (!writeBehind) {
+            return shoppingCartRepository.addItem(cartId, item);
+        }
+        CartItem added = copy(item);
+        return mutate(cartId, cart -> cart.addItem(added));
+    }
+
+    public Optional<ShoppingCart> updateItemQuantity(String cartId, Long productoId, Integer cantidad) {
+        if (!writeBehind) {
+            return shoppingCartRepository.updateItemQuantity(cartId, productoId, cantidad);
+        }
+        return mutate(cartId, cart -> cart.updateItemQuantity(productoId, cantidad));
+    }
+
+    public Optional<ShoppingCart> removeItem(String cartId, Long productoId) {
+        if (!writeBehind) {
+            return shoppingCartRepository.removeItem(cartId, productoId);
+        }
+        return mutate(cartId, cart -> cart.removeItem(productoId));
+    }
+
+    public Optional<ShoppingCart> clearItems(String cartId) {
+        if (!writeBehind) {
+            return shoppingCartRepository.clearItems(cartId);
+        }
+        return mutate(cartId, ShoppingCart::clearCart);
+    }
+
+    /**
+     * Merges the anonymous cart of a session into the user's cart, or hands it over when the
+     * user has none. Both carts are written back and held retired while the merge runs, so
+     * it works on their latest contents and no mutation can resurrect the deleted cart.
+     */
+    public Optional<ShoppingCart> transferSessionCartToUser(String sessionId, Long userId) {
+        Optional<ShoppingCart> storedSessionCart = shoppingCartRepository.findBySessionId(sessionId);
+        if (storedSessionCart.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<String> retired = new ArrayList<>(2);
+        try {
+            ShoppingCart sessionCart = retire(storedSessionCart.get(), retired);
+            Optional<ShoppingCart> userCart = shoppingCartRepository.findByUsuarioId(userId)
+                    .map(cart -> retire(cart, retired));
+            if (userCart.isPresent()) {
+                ShoppingCart existingUserCart = userCart.get();
+                for (CartItem item : sessionCart.getItems()) {
+                    existingUserCart.addItem(item);
+                }
+                shoppingCartRepository.delete(sessionCart);
+                return Optional.of(shoppingCartRepository.save(existingUserCart));
+            }
+            sessionCart.setUsuarioId(userId);
+            sessionCart.setSessionId(null);
+            return Optional.of(shoppingCartRepository.save(sessionCart));
+        } finally {
+            release(retired);
+        }
+    }
+
+    private Optional<ShoppingCart> mutate(String cartId, Consumer<ShoppingCart> change) {
+        while (true) {
+            CachedCart entry = acquire(cartId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            synchronized (entry) {
+                if (entry.retiring) {
+                    // Lost a race with a write-back; acquire again once it has landed
+                    continue;
+                }
+                change.accept(entry.cart);
+                entry.dirty = true;
+                mutations.increment();
+                return Optional.of(copy(entry.cart));
+            }
+        }
+    }
+
+    /**
+     * Returns the live entry for a cart, loading it if needed, or null if the cart does not
+     * exist. Only one thread loads a given cart; others wait for it, and nobody reads MongoDB
+     * while a write-back of that cart is still in flight.
+     */
+    private CachedCart acquire(String cartId) {
+        while (true) {
+            CachedCart entry;
+            boolean loader = false;
+            synchronized (carts) {
+                entry = carts.get(cartId);
+                if (entry != null && entry.retiring) {
+                    await(carts);
+                    continue;
+                }
+                if (entry == null) {
+                    entry = new CachedCart();
+                    carts.put(cartId, entry);
+                    loader = true;
+                }
+            }
+            if (loader) {
+                // The read and any eviction writes happen outside the map lock; the placeholder
+                // keeps other requests for this cart waiting on it instead of reading MongoDB
+                return load(cartId, entry);
+            }
+            entry.loaded.join();
+            if (entry.cart != null) {
+                return entry;
+            }
+        }
+    }
+
+    private CachedCart load(String cartId, CachedCart entry) {
+        boolean found = false;
+        try {
+            Optional<ShoppingCart> loaded = shoppingCartRepository.findById(cartId);
+            if (loaded.isPresent()) {
+                synchronized (entry) {
+                    entry.cart = loaded.get();
+                }
+                found = true;
+            }
+        } finally {
+            if (!found) {
+                synchronized (carts) {
+                    carts.remove(cartId, entry);
+                }
+            }
+            entry.loaded.complete(null);
+        }
+        if (!found) {
+            return null;
+        }
+        evictOverflow(cartId);
+        return entry;
+    }
+
+    private void evictOverflow(String keep) {
+        List<Map.Entry<String, CachedCart>> overflow = new ArrayList<>();
+        synchronized (carts) {
+            int excess = carts.size() - maxEntries;
+            Iterator<Map.Entry<String, CachedCart>> eldest = carts.entrySet().iterator();
+            while (excess > 0 && eldest.hasNext()) {
+                Map.Entry<String, CachedCart> candidate = eldest.next();
+                CachedCart entry = candidate.getValue();
+                if (entry.retiring) {
+                    excess--;
+                } else if (!candidate.getKey().equals(keep) && entry.loaded.isDone()) {
+                    entry.retiring = true;
+                    overflow.add(candidate);
+                    excess--;
+                }
+            }
+        }
+        for (Map.Entry<String, CachedCart> evicted : overflow) {
+            evict(evicted.getKey(), evicted.getValue());
+        }
+    }
+
+    private void evict(String cartId, CachedCart entry) {
+        boolean written = false;
+        try {
+            writeBack(entry);
+            written = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not write back evicted cart {}, keeping it in memory: {}", cartId, e.getMessage());
+        }
+        synchronized (carts) {
+            if (written) {
+                carts.remove(cartId, entry);
+                evictions.increment();
+            } else {
+                entry.retiring = false;
+            }
+            carts.notifyAll();
+        }
+    }
+
+    /** Saves a retiring entry if dirty, after any flush of it already in flight. */
+    private void writeBack(CachedCart entry) {
+        synchronized (entry) {
+            while (entry.writing) {
+                await(entry);
+            }
+            if (entry.dirty) {
+                shoppingCartRepository.save(copy(entry.cart));
+                writes.increment();
+                entry.dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Writes back a cart and keeps it retired until {@link #release}, so mutations wait for
+     * the caller to finish with it instead of reloading it from MongoDB.
+     */
+    private ShoppingCart retire(ShoppingCart stored, List<String> retired) {
+        if (!writeBehind) {
+            return stored;
+        }
+        String cartId = stored.getId();
+        while (true) {
+            CachedCart entry;
+            boolean owned = false;
+            synchronized (carts) {
+                entry = carts.get(cartId);
+                if (entry == null) {
+                    CachedCart tombstone = new CachedCart();
+                    tombstone.cart = stored;
+                    tombstone.retiring = true;
+                    tombstone.loaded.complete(null);
+                    carts.put(cartId, tombstone);
+                    retired.add(cartId);
+                    return stored;
+                }
+                if (entry.retiring) {
+                    await(carts);
+                    continue;
+                }
+                if (entry.loaded.isDone()) {
+                    entry.retiring = true;
+                    owned = true;
+                }
+            }
+            if (!owned) {
+                entry.loaded.join();
+                continue;
+            }
+            try {
+                writeBack(entry);
+            } catch (RuntimeException e) {
+                synchronized (carts) {
+                    entry.retiring = false;
+                    carts.notifyAll();
+                }
+                throw e;
+            }
+            retired.add(cartId);
+            synchronized (entry) {
+                return copy(entry.cart);
+            }
+        }
+    }
+
+    private void release(List<String> retired) {
+        if (retired.isEmpty()) {
+            return;
+        }
+        synchronized (carts) {
+            for (String cartId : retired) {
+                carts.remove(cartId);
+            }
+            carts.notifyAll();
+        }
+    }
+
+    /** Returns the in-memory version of a cart read from MongoDB, if it is held here. */
+    private ShoppingCart current(ShoppingCart stored) {
+        if (!writeBehind || stored == null) {
+            return stored;
+        }
+        boolean held;
+        synchronized (carts) {
+            held = carts.containsKey(stored.getId());
+        }
+        if (!held) {
+            return stored;
+        }
+        // Waits out a load or write-back in progress rather than returning a stale document
+        CachedCart entry = acquire(stored.getId());
+        if (entry == null) {
+            return stored;
+        }
+        synchronized (entry) {
+            return entry.retiring ? stored : copy(entry.cart);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wabizone.carts.write-behind.flush-interval-ms:2000}")
+    public void flush() {
+        if (!writeBehind) {
+            return;
+        }
+        List<CachedCart> entries;
+        synchronized (carts) {
+            entries = new ArrayList<>(carts.values());
+        }
+        List<CachedCart> batch = new ArrayList<>(flushBatchSize);
+        List<ShoppingCart> copies = new ArrayList<>(flushBatchSize);
+        for (CachedCart entry : entries) {
+            synchronized (entry) {
+                if (!entry.dirty || entry.writing || entry.retiring || entry.cart == null) {
+                    continue;
+                }
+                copies.add(copy(entry.cart));
+                entry.dirty = false;
+                entry.writing = true;
+            }
+            batch.add(entry);
+            if (batch.size() >= flushBatchSize) {
+                write(batch, copies);
+            }
+        }
+        write(batch, copies);
+    }
+
+    private void write(List<CachedCart> batch, List<ShoppingCart> copies) {
+        if (copies.isEmpty()) {
+            return;
+        }
+        boolean written = false;
+        try {
+            // One unordered bulk of replaces is a single round trip; saveAll would replace one by one
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShoppingCart.class);
+            for (ShoppingCart cart : copies) {
+                bulk.replaceOne(Query.query(Criteria.where("_id").is(cart.getId())), cart,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            bulk.execute();
+            writes.add(copies.size());
+            written = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush {} carts, will retry: {}", copies.size(), e.getMessage());
+        } finally {
+            for (CachedCart entry : batch) {
+                synchronized (entry) {
+                    if (!written) {
+                        entry.dirty = true;
+                    }
+                    entry.writing = false;
+                    entry.notifyAll();
+                }
+            }
+            batch.clear();
+            copies.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static void await(Object monitor) {
+        try {
+            monitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cart write-back", e);
+        }
+    }
+
+    public Stats stats() {
+        int entries;
+        synchronized (carts) {
+            entries = carts.size();
+        }
+        return new Stats(writeBehind, entries, mutations.sum(), writes.sum(), evictions.sum());
+    }
+
+    private static ShoppingCart copy(ShoppingCart cart) {
+        ShoppingCart copy = new ShoppingCart(cart.getSessionId(), cart.getUsuarioId());
+        copy.setId(cart.getId());
+        List<CartItem> items = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            items.add(copy(item));
+        }
+        copy.setItems(items);
+        copy.setUltimaActualizacion(cart.getUltimaActualizacion());
+        return copy;
+    }
+
+    private static CartItem copy(CartItem item) {
+        return new CartItem(item.getProductoId(), item.getNombre(), item.getCantidad(), item.getPrecio(),
+                item.getOpciones());
+    }
+}
@@ -0,0 +1,163 @@
+package com.wabizone.ecommerce.services;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wabizone.ecommerce.api.request.StockReservationRequest;
+import com.wabizone.ecommerce.api.response.StockReservation;
+
+/**
+ * Reserves stock with conditional set-based updates ({@code stock >= cantidad}) instead of
+ * read-modify-write, so concurrent checkouts can never oversell. A whole cart is reserved
+ * in one transaction with a single JDBC batch; it either holds every line or none.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+    private static final String RESERVADA = "RESERVADA";
+    private static final String CONFIRMADA = "CONFIRMADA";
+    private static final String LIBERADA = "LIBERADA";
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private record Line(long id, long productId, int cantidad) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCache productCache;
+    private final long defaultTtlSeconds;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ProductCache productCache,
+            @Value("${wabizone.stock.reservations.ttl-seconds:900}") long defaultTtlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCache = productCache;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+    }
+
+    public StockReservation reserve(StockReservationRequest request) {
+        if (request.items() == null || request.items().isEmpty()) {
+            throw new IllegalArgumentException("La reserva no contiene productos");
+        }
+        // Merge duplicate lines and lock rows in id order so concurrent carts cannot deadlock
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (StockReservationRequest.Item item : request.items()) {
+            if (item.productId() == null || item.cantidad() <= 0) {
+                throw new IllegalArgumentException("Línea de reserva no válida: " + item);
+            }
+            quantities.merge(item.productId(), item.cantidad(), Integer::sum);
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        long ttlSeconds = request.ttlSeconds() == null || request.ttlSeconds() <= 0
+                ? defaultTtlSeconds : request.ttlSeconds();
+        String reservationId = UUID.randomUUID().toString();
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(
+                    "UPDATE Product SET stock = stock - ? WHERE id = ? AND stock >= ?",
+                    lines, lines.size(), (ps, line) -> {
+                        ps.setInt(1, line.getValue());
+                        ps.setLong(2, line.getKey());
+                        ps.setInt(3, line.getValue());
+                    })[0];
+            List<Long> unavailable = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    unavailable.add(lines.get(i).getKey());
+                }
+            }
+            if (!unavailable.isEmpty()) {
+                throw new InsufficientStockException(unavailable);
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO stock_reservation (reservation_id, product_id, cantidad, estado, expires_at) "
+                            + "VALUES (?, ?, ?, ?, ?)",
+                    lines, lines.size(), (ps, line) -> {
+                        ps.setString(1, reservationId);
+                        ps.setLong(2, line.getKey());
+                        ps.setInt(3, line.getValue());
+                        ps.setString(4, RESERVADA);
+                        ps.setTimestamp(5, Timestamp.from(expiresAt));
+                    });
+        });
+
+        quantities.keySet().forEach(productCache::invalidate);
+        List<StockReservationRequest.Item> items = lines.stream()
+                .map(line -> new StockReservationRequest.Item(line.getKey(), line.getValue()))
+                .toList();
+        return new StockReservation(reservationId, expiresAt, items);
+    }
+
+    /**
+     * Makes the reservation permanent. Returns false when it does not exist, was already
+     * released, or expired before being committed.
+     */
+    public boolean commit(String reservationId) {
+        int updated = jdbcTemplate.update(
+                "UPDATE stock_reservation SET estado = ? WHERE reservation_id = ? AND estado = ? AND expires_at >= ?",
+                CONFIRMADA, reservationId, RESERVADA, Timestamp.from(Instant.now()));
+        return updated > 0;
+    }
+
+    public boolean release(String reservationId) {
+        List<Line> released = transactionTemplate.execute(status -> {
+            List<Line> lines = jdbcTemplate.query(
+                    "SELECT id, product_id, cantidad FROM stock_reservation WHERE reservation_id = ? AND estado = ?",
+                    (rs, rowNum) -> new Line(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("cantidad")),
+                    reservationId, RESERVADA);
+            List<Line> releasedLines = new ArrayList<>();
+            for (Line line : lines) {
+                // Guarded by estado so a concurrent commit or release of the same line wins exactly once
+                if (jdbcTemplate.update("UPDATE stock_reservation SET estado = ? WHERE id = ? AND estado = ?",
+                        LIBERADA, line.id(), RESERVADA) == 1) {
+                    releasedLines.add(line);
+                }
+            }
+            if (!releasedLines.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE Product SET stock = stock + ? WHERE id = ?",
+                        releasedLines, releasedLines.size(), (ps, line) -> {
+                            ps.setInt(1, line.cantidad());
+                            ps.setLong(2, line.productId());
+                        });
+            }
+            return releasedLines;
+        });
+        if (released == null || released.isEmpty()) {
+            return false;
+        }
+        released.forEach(line -> productCache.invalidate(line.productId()));
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${wabizone.stock.reservations.sweep-interval-ms:30000}")
+    public void releaseExpired() {
+        List<String> expired = jdbcTemplate.queryForList(
+                "SELECT DISTINCT reservation_id FROM stock_reservation WHERE estado = ? AND expires_at < ? LIMIT "
+                        + SWEEP_BATCH_SIZE,
+                String.class, RESERVADA, Timestamp.from(Instant.now()));
+        int released = 0;
+        for (String reservationId : expired) {
+            if (release(reservationId)) {
+                released++;
+            }
+        }
+        if (released > 0) {
+            logger.info("Released {} expired stock reservations", released);
+        }
+    }
+}
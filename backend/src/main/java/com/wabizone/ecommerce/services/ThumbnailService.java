@@ -0,0 +1,193 @@
+package com.wabizone.ecommerce.services;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates fixed-size thumbnails for stored images on a bounded worker pool, so list
+ * views can fetch a few kilobytes instead of the original upload.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final int[] SIZES = { 64, 256, 1024 };
+
+    private final ImageStore imageStore;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final long maxSourcePixels;
+
+    public ThumbnailService(ImageStore imageStore,
+            @Value("${wabizone.thumbnails.workers:2}") int workers,
+            @Value("${wabizone.thumbnails.queue-capacity:100}") int queueCapacity,
+            @Value("${wabizone.thumbnails.max-source-pixels:100000000}") long maxSourcePixels) {
+        this.imageStore = imageStore;
+        this.maxSourcePixels = maxSourcePixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static boolean isSupportedSize(int size) {
+        for (int supported : SIZES) {
+            if (supported == size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues thumbnail generation for an image reference. Values that are not store
+     * references (asset names, empty strings) are ignored.
+     */
+    public void generateAsync(String imagen) {
+        ImageStore.hashOf(imagen).ifPresent(this::generateAsyncForHash);
+    }
+
+    public void generateAsyncForHash(String hash) {
+        if (!pending.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(hash);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+            logger.warn("Thumbnail queue full, skipping image {}; it will be retried on next request", hash);
+        }
+    }
+
+    public Optional<Path> resolve(String hash, int size) {
+        if (!isSupportedSize(size) || imageStore.resolve(hash).isEmpty()) {
+            return Optional.empty();
+        }
+        Path path = imageStore.derivativePath(hash, size);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String hash) {
+        Optional<Path> original = imageStore.resolve(hash);
+        if (original.isEmpty()) {
+            return;
+        }
+        try {
+            BufferedImage source = decode(original.get(), hash);
+            if (source == null) {
+                return;
+            }
+            for (int size : SIZES) {
+                Path target = imageStore.derivativePath(hash, size);
+                if (Files.exists(target)) {
+                    continue;
+                }
+                BufferedImage thumbnail = scale(source, size);
+                String format = thumbnail.getColorModel().hasAlpha() ? "png" : "jpg";
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+                try {
+                    ImageIO.write(thumbnail, format, temp.toFile());
+                    imageStore.publish(temp, target);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            logger.debug("Thumbnails generated for image {}", hash);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate thumbnails for image {}: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the dimensions from the header before decoding anything, rejects images above the
+     * pixel budget (a small, highly compressed PNG can expand to gigabytes), and decodes with
+     * subsampling so the raster is only about as large as the biggest thumbnail needs.
+     */
+    private BufferedImage decode(Path file, String hash) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("Image {} has a format ImageIO cannot decode, no thumbnails generated", hash);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    logger.warn("Image {} is {}x{}, above the {} pixel budget; no thumbnails generated",
+                            hash, width, height, maxSourcePixels);
+                    return null;
+                }
+                int largest = SIZES[SIZES.length - 1];
+                int step = Math.max(1, Math.max(width, height) / largest);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
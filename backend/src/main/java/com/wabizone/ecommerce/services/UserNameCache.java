@@ -0,0 +1,46 @@
+package com.wabizone.ecommerce.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Small LRU map of user id to nombre used to enrich orders without a query per order.
+ */
+@Service
+public class UserNameCache {
+
+    private final Map<Long, String> names;
+
+    public UserNameCache(@Value("${wabizone.users.name-cache.max-entries:10000}") int maxEntries) {
+        this.names = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized Map<Long, String> getAll(Collection<Long> ids) {
+        Map<Long, String> found = new HashMap<>();
+        for (Long id : ids) {
+            String nombre = names.get(id);
+            if (nombre != null) {
+                found.put(id, nombre);
+            }
+        }
+        return found;
+    }
+
+    public synchronized void putAll(Map<Long, String> entries) {
+        names.putAll(entries);
+    }
+
+    public synchronized void invalidate(Long id) {
+        names.remove(id);
+    }
+}
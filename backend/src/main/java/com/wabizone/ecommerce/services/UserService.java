@@ -1,5 +1,7 @@
 package com.wabizone.ecommerce.services;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,14 +17,22 @@ import org.slf4j.LoggerFactory;
 public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
+    private final ImageStore imageStore;
+    private final ThumbnailService thumbnailService;
+    private final UserNameCache userNameCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ImageStore imageStore, ThumbnailService thumbnailService,
+            UserNameCache userNameCache) {
         this.userRepository = userRepository;
+        this.imageStore = imageStore;
+        this.thumbnailService = thumbnailService;
+        this.userNameCache = userNameCache;
     }
 
     public User createUser(UserCreationRequest userCreationRequest) {
         logger.info("Creating new user with name: {}", userCreationRequest.nombre());
         User user = userRepository.save(mapToUser(userCreationRequest));
+        thumbnailService.generateAsync(user.getImagen());
         logger.info("User created successfully with ID: {}", user.getId());
         return user;
     }
@@ -34,7 +44,7 @@ public class UserService {
         user.setEdad(createRequest.edad());
         user.setAdministrador(createRequest.administrador());
         user.setTrato(createRequest.trato());
-        user.setImagen(createRequest.imagen());
+        user.setImagen(imageStore.internalize(createRequest.imagen()));
         user.setLugarNacimiento(createRequest.lugarNacimiento());
         user.setBloqueado(createRequest.bloqueado());
         return user;
@@ -43,6 +53,7 @@ public class UserService {
     public void removeUser(Long id) {
         logger.info("Removing user with ID: {}", id);
         userRepository.deleteById(id);
+        userNameCache.invalidate(id);
         logger.info("User removed successfully");
     }
 
@@ -79,10 +90,12 @@ public class UserService {
             user.setEdad(userUpdateRequest.edad());
             user.setAdministrador(userUpdateRequest.administrador());
             user.setTrato(userUpdateRequest.trato());
-            user.setImagen(userUpdateRequest.imagen());
+            user.setImagen(imageStore.internalize(userUpdateRequest.imagen()));
             user.setLugarNacimiento(userUpdateRequest.lugarNacimiento());
             user.setBloqueado(userUpdateRequest.bloqueado());
             User updatedUser = userRepository.save(user);
+            userNameCache.invalidate(id);
+            thumbnailService.generateAsync(updatedUser.getImagen());
             logger.info("User updated successfully");
             return updatedUser;
         } else {
@@ -90,4 +103,14 @@ public class UserService {
             throw new RuntimeException("Usuario con id " + id + " no encontrado");
         }
     }
+
+    public User updateUserImage(Long id, InputStream imageData) throws IOException {
+        logger.info("Uploading image for user with ID: {}", id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario con id " + id + " no encontrado"));
+        user.setImagen(ImageStore.REFERENCE_PREFIX + imageStore.store(imageData));
+        User updatedUser = userRepository.save(user);
+        thumbnailService.generateAsync(updatedUser.getImagen());
+        return updatedUser;
+    }
 }
@@ -0,0 +1,11 @@
+-- Reservas de stock: cada fila es una línea de una reserva (reservation_id agrupa el carrito)
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    reservation_id VARCHAR(36) NOT NULL,
+    product_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_stock_reservation_reservation (reservation_id),
+    INDEX idx_stock_reservation_estado_expires (estado, expires_at)
+);
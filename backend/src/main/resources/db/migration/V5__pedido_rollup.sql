@@ -0,0 +1,8 @@
+-- Agregados de pedidos mantenidos de forma incremental (dimension: TOTAL, DIA, ESTADO, USUARIO)
+CREATE TABLE IF NOT EXISTS pedido_rollup (
+    dimension VARCHAR(16) NOT NULL,
+    clave VARCHAR(64) NOT NULL,
+    pedidos BIGINT NOT NULL DEFAULT 0,
+    ingresos DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (dimension, clave)
+);
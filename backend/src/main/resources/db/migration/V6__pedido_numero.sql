@@ -0,0 +1,5 @@
+-- Contador de números de pedido; cada instancia reserva bloques consecutivos avanzando "siguiente"
+CREATE TABLE IF NOT EXISTS pedido_numero_bloque (
+    nombre VARCHAR(32) PRIMARY KEY,
+    siguiente BIGINT NOT NULL
+);
@@ -0,0 +1,31 @@
+-- Pedidos entregados antiguos, movidos fuera de la tabla Pedido por el archivado periódico
+CREATE TABLE IF NOT EXISTS pedido_archivo (
+    id BIGINT PRIMARY KEY,
+    n_pedido BIGINT,
+    detalles_pedido LONGTEXT,
+    estado_pedido VARCHAR(255),
+    precio_total DOUBLE NOT NULL,
+    usuario_id BIGINT,
+    nombre_usuario VARCHAR(255),
+    nombre_completo VARCHAR(255),
+    direccion VARCHAR(255),
+    ciudad VARCHAR(255),
+    codigo_postal VARCHAR(255),
+    telefono VARCHAR(255),
+    email VARCHAR(255),
+    comentarios VARCHAR(255),
+    fecha_pedido DATETIME(6),
+    archivado_en TIMESTAMP NOT NULL,
+    INDEX idx_pedido_archivo_usuario (usuario_id, id),
+    INDEX idx_pedido_archivo_fecha (fecha_pedido)
+);
+
+CREATE TABLE IF NOT EXISTS pedido_linea_archivo (
+    id BIGINT PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    precio_unitario DOUBLE NOT NULL,
+    INDEX idx_pedido_linea_archivo_pedido (pedido_id),
+    INDEX idx_pedido_linea_archivo_product (product_id)
+);
@@ -0,0 +1,11 @@
+-- Líneas de pedido normalizadas. La clave foránea hacia Pedido la añade Hibernate, porque en una
+-- base de datos nueva este script puede ejecutarse antes de que exista la tabla Pedido
+CREATE TABLE IF NOT EXISTS pedido_linea (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    precio_unitario DOUBLE NOT NULL,
+    INDEX idx_pedido_linea_pedido (pedido_id),
+    INDEX idx_pedido_linea_product (product_id)
+);
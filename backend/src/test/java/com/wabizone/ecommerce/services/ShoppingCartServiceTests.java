@@ -0,0 +1,254 @@
+package com.wabizone.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.wabizone.ecommerce.models.CartItem;
+import com.wabizone.ecommerce.models.ShoppingCart;
+import com.wabizone.ecommerce.repository.ShoppingCartRepository;
+
+class ShoppingCartServiceTests {
+
+	private final Map<String, ShoppingCart> stored = new ConcurrentHashMap<>();
+	private final AtomicInteger bulkWrites = new AtomicInteger();
+	private volatile CountDownLatch bulkGate;
+	private ShoppingCartRepository repository;
+	private MongoTemplate mongoTemplate;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(ShoppingCartRepository.class);
+		when(repository.findById(anyString())).thenAnswer(invocation -> {
+			pause();
+			return Optional.ofNullable(stored.get(invocation.<String>getArgument(0))).map(ShoppingCartServiceTests::copy);
+		});
+		when(repository.findBySessionId(anyString())).thenAnswer(invocation -> stored.values().stream()
+				.filter(cart -> invocation.getArgument(0).equals(cart.getSessionId()))
+				.findFirst().map(ShoppingCartServiceTests::copy));
+		when(repository.findByUsuarioId(anyLong())).thenAnswer(invocation -> stored.values().stream()
+				.filter(cart -> invocation.getArgument(0).equals(cart.getUsuarioId()))
+				.findFirst().map(ShoppingCartServiceTests::copy));
+		when(repository.save(any(ShoppingCart.class))).thenAnswer(invocation -> {
+			pause();
+			ShoppingCart cart = copy(invocation.getArgument(0));
+			stored.put(cart.getId(), cart);
+			return copy(cart);
+		});
+		doAnswer(invocation -> stored.remove(invocation.<ShoppingCart>getArgument(0).getId()))
+				.when(repository).delete(any(ShoppingCart.class));
+
+		mongoTemplate = mock(MongoTemplate.class);
+		when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(ShoppingCart.class))).thenAnswer(invocation -> {
+			List<ShoppingCart> replacements = new ArrayList<>();
+			BulkOperations bulk = mock(BulkOperations.class);
+			when(bulk.replaceOne(any(Query.class), any(), any(FindAndReplaceOptions.class))).thenAnswer(replace -> {
+				replacements.add(copy(replace.getArgument(1)));
+				return bulk;
+			});
+			when(bulk.execute()).thenAnswer(execute -> {
+				CountDownLatch gate = bulkGate;
+				if (gate != null) {
+					bulkGate = null;
+					gate.await();
+				}
+				pause();
+				replacements.forEach(cart -> stored.put(cart.getId(), cart));
+				bulkWrites.incrementAndGet();
+				return null;
+			});
+			return bulk;
+		});
+	}
+
+	@Test
+	void concurrentMutationsAndFlushesLoseNothing() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			store("cart-" + i, "session-" + i, null);
+		}
+		// Two entries for four carts: loads, evictions and flushes all overlap
+		ShoppingCartService service = new ShoppingCartService(repository, mongoTemplate, true, 2, 500);
+		Map<String, AtomicInteger> acknowledged = new ConcurrentHashMap<>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread flusher = new Thread(() -> {
+			while (running.get()) {
+				service.flush();
+			}
+		});
+		flusher.start();
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(executor.submit(() -> {
+				for (int i = 0; i < 200; i++) {
+					String cartId = "cart-" + ThreadLocalRandom.current().nextInt(4);
+					if (service.addItem(cartId, new CartItem(1L, "Peonza", 1, 2.5)).isPresent()) {
+						acknowledged.computeIfAbsent(cartId, id -> new AtomicInteger()).incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		running.set(false);
+		flusher.join();
+		service.shutdown();
+
+		int total = 0;
+		for (int i = 0; i < 4; i++) {
+			String cartId = "cart-" + i;
+			int expected = acknowledged.getOrDefault(cartId, new AtomicInteger()).get();
+			assertEquals(expected, quantity(cartId, 1L), "acknowledged additions to " + cartId);
+			total += expected;
+		}
+		assertEquals(threads * 200, total);
+	}
+
+	@Test
+	void evictionWaitsForFlushInFlight() throws Exception {
+		store("cart-a", "session-a", null);
+		store("cart-b", "session-b", null);
+		ShoppingCartService service = new ShoppingCartService(repository, mongoTemplate, true, 1, 500);
+		service.addItem("cart-a", new CartItem(1L, "Peonza", 1, 2.5));
+
+		CountDownLatch gate = new CountDownLatch(1);
+		bulkGate = gate;
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		// The flush takes the quantity-1 copy of cart-a and stalls inside the bulk write
+		Future<?> flush = executor.submit(service::flush);
+		awaitBulkStarted();
+		service.addItem("cart-a", new CartItem(1L, "Peonza", 1, 2.5));
+		// Loading cart-b evicts cart-a, whose quantity-2 write must not overtake the stalled flush
+		Future<?> evicting = executor.submit(() -> service.addItem("cart-b", new CartItem(2L, "Yoyó", 1, 1.0)));
+		Thread.sleep(200);
+		assertFalse(evicting.isDone(), "eviction must wait for the flush of the same cart");
+		Future<?> reload = executor.submit(() -> service.addItem("cart-a", new CartItem(1L, "Peonza", 1, 2.5)));
+
+		gate.countDown();
+		flush.get(10, TimeUnit.SECONDS);
+		evicting.get(10, TimeUnit.SECONDS);
+		reload.get(10, TimeUnit.SECONDS);
+		executor.shutdown();
+		service.shutdown();
+
+		assertEquals(3, quantity("cart-a", 1L));
+		assertEquals(1, quantity("cart-b", 2L));
+	}
+
+	@Test
+	void transferMergesInMemoryCartsAndKeepsSessionCartDeleted() throws Exception {
+		store("cart-session", "session-1", null);
+		store("cart-user", null, 7L);
+		ShoppingCartService service = new ShoppingCartService(repository, mongoTemplate, true, 100, 500);
+		service.addItem("cart-session", new CartItem(1L, "Peonza", 2, 2.5));
+		service.addItem("cart-user", new CartItem(2L, "Yoyó", 1, 1.0));
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			while (running.get()) {
+				service.addItem("cart-session", new CartItem(3L, "Canica", 1, 0.5));
+			}
+		});
+		writer.start();
+		Thread.sleep(20);
+		ShoppingCart merged = service.transferSessionCartToUser("session-1", 7L).orElseThrow();
+		running.set(false);
+		writer.join();
+		service.shutdown();
+
+		assertEquals("cart-user", merged.getId());
+		assertEquals(2, quantity("cart-user", 1L));
+		assertEquals(1, quantity("cart-user", 2L));
+		assertTrue(quantity("cart-user", 3L) > 0, "session cart changes made before the transfer are merged");
+		assertFalse(stored.containsKey("cart-session"), "the merged session cart must stay deleted");
+		assertTrue(service.addItem("cart-session", new CartItem(3L, "Canica", 1, 0.5)).isEmpty());
+	}
+
+	@Test
+	void flushWritesDirtyCartsInOneBulk() {
+		for (int i = 0; i < 3; i++) {
+			store("cart-" + i, "session-" + i, null);
+		}
+		ShoppingCartService service = new ShoppingCartService(repository, mongoTemplate, true, 100, 500);
+		for (int i = 0; i < 30; i++) {
+			service.addItem("cart-" + (i % 3), new CartItem(1L, "Peonza", 1, 2.5));
+		}
+		service.flush();
+
+		assertEquals(1, bulkWrites.get());
+		assertEquals(10, quantity("cart-0", 1L));
+		assertEquals(3, service.stats().writes());
+		assertEquals(30, service.stats().mutations());
+	}
+
+	private void awaitBulkStarted() throws InterruptedException {
+		for (int i = 0; i < 500 && bulkGate != null; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(bulkGate == null, "flush did not reach the bulk write");
+	}
+
+	private void store(String id, String sessionId, Long usuarioId) {
+		ShoppingCart cart = new ShoppingCart(sessionId, usuarioId);
+		cart.setId(id);
+		stored.put(id, cart);
+	}
+
+	private int quantity(String cartId, Long productoId) {
+		ShoppingCart cart = stored.get(cartId);
+		if (cart == null) {
+			return 0;
+		}
+		return cart.getItems().stream()
+				.filter(item -> item.getProductoId().equals(productoId))
+				.mapToInt(CartItem::getCantidad)
+				.sum();
+	}
+
+	private static void pause() throws InterruptedException {
+		Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+	}
+
+	private static ShoppingCart copy(ShoppingCart cart) {
+		ShoppingCart copy = new ShoppingCart(cart.getSessionId(), cart.getUsuarioId());
+		copy.setId(cart.getId());
+		List<CartItem> items = new ArrayList<>();
+		for (CartItem item : cart.getItems()) {
+			items.add(new CartItem(item.getProductoId(), item.getNombre(), item.getCantidad(), item.getPrecio()));
+		}
+		copy.setItems(items);
+		return copy;
+	}
+}
@@ -0,0 +1,142 @@
+package com.wabizone.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wabizone.ecommerce.api.request.StockReservationRequest;
+import com.wabizone.ecommerce.api.response.StockReservation;
+
+class StockReservationServiceTests {
+
+	private static final int HOT_STOCK = 200;
+	private static final int SECOND_STOCK = 50;
+
+	private EmbeddedDatabase database;
+	private JdbcTemplate jdbcTemplate;
+	private StockReservationService service;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName("stock-" + UUID.randomUUID() + ";MODE=MySQL")
+				.addScript("classpath:db/migration/V4__stock_reservation.sql")
+				.build();
+		jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("CREATE TABLE Product (id BIGINT PRIMARY KEY, stock INT NOT NULL)");
+		jdbcTemplate.update("INSERT INTO Product (id, stock) VALUES (1, ?), (2, ?)", HOT_STOCK, SECOND_STOCK);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+		service = new StockReservationService(jdbcTemplate, transactionTemplate, new ProductCache(1024 * 1024, 60), 60);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void concurrentReservationsNeverOversell() throws Exception {
+		int threads = 32;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<int[]>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(executor.submit(() -> {
+				int[] reserved = new int[2];
+				start.await();
+				for (int i = 0; i < 50; i++) {
+					int hot = ThreadLocalRandom.current().nextInt(1, 4);
+					boolean cart = ThreadLocalRandom.current().nextBoolean();
+					List<StockReservationRequest.Item> items = cart
+							? List.of(new StockReservationRequest.Item(2L, 1), new StockReservationRequest.Item(1L, hot))
+							: List.of(new StockReservationRequest.Item(1L, hot));
+					try {
+						service.reserve(new StockReservationRequest(items, null));
+						reserved[0] += hot;
+						reserved[1] += cart ? 1 : 0;
+					} catch (InsufficientStockException e) {
+						// expected once the hot SKU is sold out
+					}
+				}
+				return reserved;
+			}));
+		}
+		start.countDown();
+		int reservedHot = 0;
+		int reservedSecond = 0;
+		for (Future<int[]> result : results) {
+			int[] reserved = result.get(60, TimeUnit.SECONDS);
+			reservedHot += reserved[0];
+			reservedSecond += reserved[1];
+		}
+		executor.shutdown();
+
+		int hotStock = stockOf(1L);
+		int secondStock = stockOf(2L);
+		assertTrue(hotStock >= 0 && secondStock >= 0);
+		assertEquals(HOT_STOCK, hotStock + reservedHot);
+		assertEquals(SECOND_STOCK, secondStock + reservedSecond);
+		assertEquals(reservedHot + reservedSecond, jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(cantidad), 0) FROM stock_reservation", Integer.class));
+	}
+
+	@Test
+	void cartReservationIsAllOrNothing() {
+		InsufficientStockException error = assertThrows(InsufficientStockException.class,
+				() -> service.reserve(new StockReservationRequest(List.of(
+						new StockReservationRequest.Item(1L, 5),
+						new StockReservationRequest.Item(2L, SECOND_STOCK + 1)), null)));
+
+		assertEquals(List.of(2L), error.getProductIds());
+		assertEquals(HOT_STOCK, stockOf(1L));
+		assertEquals(SECOND_STOCK, stockOf(2L));
+	}
+
+	@Test
+	void releaseRestoresStockOnlyOnce() {
+		StockReservation reservation = service.reserve(new StockReservationRequest(List.of(
+				new StockReservationRequest.Item(1L, 10)), null));
+		assertEquals(HOT_STOCK - 10, stockOf(1L));
+
+		assertTrue(service.release(reservation.reservationId()));
+		assertFalse(service.release(reservation.reservationId()));
+		assertFalse(service.commit(reservation.reservationId()));
+		assertEquals(HOT_STOCK, stockOf(1L));
+	}
+
+	@Test
+	void committedReservationCannotBeReleased() {
+		StockReservation reservation = service.reserve(new StockReservationRequest(List.of(
+				new StockReservationRequest.Item(2L, 3)), null));
+
+		assertTrue(service.commit(reservation.reservationId()));
+		assertFalse(service.release(reservation.reservationId()));
+		assertEquals(SECOND_STOCK - 3, stockOf(2L));
+	}
+
+	private int stockOf(long productId) {
+		return jdbcTemplate.queryForObject("SELECT stock FROM Product WHERE id = ?", Integer.class, productId);
+	}
+}